@@ -0,0 +1,182 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.neoforged.neoforge.items.IItemHandlerModifiable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shared fixtures for the benchmarks. Nothing in here needs a running server or client.
+ */
+public final class BenchmarkFixtures
+{
+    private static boolean bootstrapped = false;
+
+    /**
+     * Bootstraps the vanilla registries, which is required before any {@link ItemStack} can be created.
+     */
+    public static synchronized void bootstrap()
+    {
+        if (!bootstrapped)
+        {
+            SharedConstants.tryDetectVersion();
+            Bootstrap.bootStrap();
+            bootstrapped = true;
+        }
+    }
+
+    /**
+     * Creates an inventory where every {@code stride}-th slot is filled with a partial stack, and the rest are empty.
+     *
+     * @param slots  the number of slots.
+     * @param stride how often a slot is pre-filled, or {@code 0} for an empty inventory.
+     * @return       a new inventory.
+     */
+    public static StubItemHandler inventory(int slots, int stride)
+    {
+        final StubItemHandler inventory = new StubItemHandler(slots);
+        if (stride > 0)
+        {
+            for (int slot = 0; slot < slots; slot += stride)
+            {
+                inventory.setStackInSlot(slot, new ItemStack(slot % 2 == 0 ? Items.COBBLESTONE : Items.IRON_INGOT, 17));
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * Creates item entities without a level. They are never ticked or added to a level, only their stacks are read and shrunk.
+     * The constructor taking an explicit motion is used, as the others roll a random motion from the level's random source.
+     *
+     * @param count     the number of entities.
+     * @param stackSize the size of each entity's stack.
+     * @return          a new list of item entities.
+     */
+    public static List<ItemEntity> itemEntities(int count, int stackSize)
+    {
+        final List<ItemEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            entities.add(new ItemEntity(null, 0, 0, 0, new ItemStack(i % 2 == 0 ? Items.COBBLESTONE : Items.IRON_INGOT, stackSize), 0, 0, 0));
+        }
+        return entities;
+    }
+
+    /**
+     * A minimal array backed {@link IItemHandlerModifiable}, with the same insertion and extraction semantics as NeoForge's item stack handler,
+     * but without any change callbacks or serialization.
+     */
+    public static final class StubItemHandler implements IItemHandlerModifiable
+    {
+        private final ItemStack[] stacks;
+
+        public StubItemHandler(int slots)
+        {
+            this.stacks = new ItemStack[slots];
+            clear();
+        }
+
+        public void clear()
+        {
+            Arrays.fill(stacks, ItemStack.EMPTY);
+        }
+
+        @Override
+        public void setStackInSlot(int slot, ItemStack stack)
+        {
+            stacks[slot] = stack;
+        }
+
+        @Override
+        public int getSlots()
+        {
+            return stacks.length;
+        }
+
+        @Override
+        public ItemStack getStackInSlot(int slot)
+        {
+            return stacks[slot];
+        }
+
+        @Override
+        public ItemStack insertItem(int slot, ItemStack stack, boolean simulate)
+        {
+            if (stack.isEmpty())
+            {
+                return ItemStack.EMPTY;
+            }
+            final ItemStack existing = stacks[slot];
+            int limit = Math.min(getSlotLimit(slot), stack.getMaxStackSize());
+            if (!existing.isEmpty())
+            {
+                if (!ItemStack.isSameItemSameComponents(stack, existing))
+                {
+                    return stack;
+                }
+                limit -= existing.getCount();
+            }
+            if (limit <= 0)
+            {
+                return stack;
+            }
+            final boolean reachedLimit = stack.getCount() > limit;
+            if (!simulate)
+            {
+                if (existing.isEmpty())
+                {
+                    stacks[slot] = reachedLimit ? stack.copyWithCount(limit) : stack;
+                }
+                else
+                {
+                    existing.grow(reachedLimit ? limit : stack.getCount());
+                }
+            }
+            return reachedLimit ? stack.copyWithCount(stack.getCount() - limit) : ItemStack.EMPTY;
+        }
+
+        @Override
+        public ItemStack extractItem(int slot, int amount, boolean simulate)
+        {
+            final ItemStack existing = stacks[slot];
+            if (amount == 0 || existing.isEmpty())
+            {
+                return ItemStack.EMPTY;
+            }
+            final int toExtract = Math.min(amount, existing.getMaxStackSize());
+            if (existing.getCount() <= toExtract)
+            {
+                if (!simulate)
+                {
+                    stacks[slot] = ItemStack.EMPTY;
+                    return existing;
+                }
+                return existing.copy();
+            }
+            if (!simulate)
+            {
+                stacks[slot] = existing.copyWithCount(existing.getCount() - toExtract);
+            }
+            return existing.copyWithCount(toExtract);
+        }
+
+        @Override
+        public int getSlotLimit(int slot)
+        {
+            return 64;
+        }
+
+        @Override
+        public boolean isItemValid(int slot, ItemStack stack)
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HelpersBenchmark
+{
+    /**
+     * The number of inventory slots. 27 is a chest, 54 a double chest, larger values for storage crates.
+     */
+    @Param({"27", "54", "243"})
+    public int slots;
+
+    private BenchmarkFixtures.StubItemHandler fullInventory;
+    private BenchmarkFixtures.StubItemHandler emptyInventory;
+    private BenchmarkFixtures.StubItemHandler targetInventory;
+    private List<Integer> sampleList;
+    private List<ItemStack> insertBatch;
+    private final InventoryCursor cursor = new InventoryCursor();
+    private RandomSource random;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        BenchmarkFixtures.bootstrap();
+
+        fullInventory = BenchmarkFixtures.inventory(slots, 1);
+        emptyInventory = BenchmarkFixtures.inventory(slots, 0);
+        sampleList = new ArrayList<>(512);
+        for (int i = 0; i < 512; i++)
+        {
+            sampleList.add(i);
+        }
+        random = RandomSource.create(8935L);
+
+        insertBatch = new ArrayList<>(32);
+        for (int i = 0; i < 32; i++)
+        {
+            insertBatch.add(new ItemStack(i % 4 == 0 ? Items.DIRT : i % 2 == 0 ? Items.COBBLESTONE : Items.IRON_INGOT, 24));
+        }
+    }
+
+    /**
+     * The insertion and gathering benchmarks mutate their inventory, so it is rebuilt before each invocation.
+     */
+    @Setup(Level.Invocation)
+    public void setupInvocation()
+    {
+        targetInventory = BenchmarkFixtures.inventory(slots, 3);
+    }
+
+    @Benchmark
+    public ItemStack insertSlots()
+    {
+        // Neither cobblestone nor iron, so every pre-filled slot is tried and rejected before an empty one is found.
+        return Helpers.insertSlots(targetInventory, new ItemStack(Items.DIRT, 64), 0, slots);
+    }
+
+    @Benchmark
+    public ItemStack insertSlotsMerging()
+    {
+        return Helpers.insertSlots(targetInventory, new ItemStack(Items.IRON_INGOT, 64), 0, slots);
+    }
+
+    @Benchmark
+    public ItemStack insertSlotsRepeated()
+    {
+        // A hopper or crate moving a batch of mixed stacks, one call per stack
+        ItemStack remainder = ItemStack.EMPTY;
+        for (ItemStack stack : insertBatch)
+        {
+            remainder = Helpers.insertSlots(targetInventory, stack.copy(), 0, slots);
+        }
+        return remainder;
+    }
+
+    @Benchmark
+    public List<ItemStack> insertSlotsBulk()
+    {
+        return Helpers.insertSlots(targetInventory, insertBatch, 0, slots, false);
+    }
+
+    @Benchmark
+    public List<ItemStack> insertSlotsBulkSimulate()
+    {
+        return Helpers.insertSlots(targetInventory, insertBatch, 0, slots, true);
+    }
+
+    @Benchmark
+    public BenchmarkFixtures.StubItemHandler gatherAndConsumeItems(ItemEntities entities)
+    {
+        Helpers.gatherAndConsumeItems(entities.itemEntities, targetInventory, 0, slots - 1, Integer.MAX_VALUE);
+        return targetInventory;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole)
+    {
+        for (ItemStack stack : Helpers.iterate(fullInventory))
+        {
+            blackhole.consume(stack);
+        }
+    }
+
+    @Benchmark
+    public boolean isEmpty()
+    {
+        // Worst case, every slot has to be checked
+        return Helpers.isEmpty(Helpers.iterate(emptyInventory));
+    }
+
+    @Benchmark
+    public boolean isEmptyIndexed()
+    {
+        return Helpers.isEmpty(emptyInventory);
+    }
+
+    @Benchmark
+    public void forEachSlot(Blackhole blackhole)
+    {
+        Helpers.forEachSlot(fullInventory, (slot, stack) -> blackhole.consume(stack));
+    }
+
+    @Benchmark
+    public void iterateCursor(Blackhole blackhole)
+    {
+        for (ItemStack stack : cursor.of(fullInventory))
+        {
+            blackhole.consume(stack);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> uniqueRandomSample()
+    {
+        return Helpers.uniqueRandomSample(sampleList, 8, random);
+    }
+
+    @Benchmark
+    public List<Integer> uniqueRandomSelection()
+    {
+        return Helpers.uniqueRandomSelection(sampleList, 8, random);
+    }
+
+    /**
+     * The entities consumed by {@link #gatherAndConsumeItems}, which are only built for that benchmark.
+     */
+    @State(Scope.Thread)
+    public static class ItemEntities
+    {
+        private List<ItemEntity> itemEntities;
+
+        @Setup(Level.Trial)
+        public void setupTrial()
+        {
+            BenchmarkFixtures.bootstrap();
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation()
+        {
+            itemEntities = BenchmarkFixtures.itemEntities(8, 32);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dev.cassis2310.falloutmc.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MathHelpersBenchmark
+{
+    /**
+     * The number of inputs and tests. 9 is a full crafting grid, the larger sizes are for modded machines with big recipe inputs.
+     */
+    @Param({"3", "9", "16"})
+    public int size;
+
+    private List<Integer> inputs;
+    private List<Predicate<Integer>> tests;
+    private List<Predicate<Integer>> unmatchableTests;
+
+    private long salt;
+    private int x, y, z;
+    private final int[] sectionHashes = new int[16 * 16 * 16];
+
+    @Setup
+    public void setup()
+    {
+        final Random random = new Random(8935L);
+
+        // Each test accepts its own input and a few random others, so a perfect matching exists but is not the identity.
+        inputs = new ArrayList<>(size);
+        tests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            inputs.add(i);
+            final boolean[] accepted = new boolean[size];
+            accepted[i] = true;
+            for (int j = 0; j < 2; j++)
+            {
+                accepted[random.nextInt(size)] = true;
+            }
+            tests.add(input -> accepted[input]);
+        }
+
+        // The same, but the last test accepts nothing, which forces the search to be exhaustive.
+        unmatchableTests = new ArrayList<>(tests);
+        unmatchableTests.set(size - 1, input -> false);
+
+        salt = random.nextLong();
+        x = random.nextInt(1000);
+        y = random.nextInt(256);
+        z = random.nextInt(1000);
+    }
+
+    @Benchmark
+    public int hash()
+    {
+        return MathHelpers.hash(salt, x, y, z);
+    }
+
+    @Benchmark
+    public void hashSection(Blackhole blackhole)
+    {
+        for (int dy = 0; dy < 16; dy++)
+        {
+            for (int dz = 0; dz < 16; dz++)
+            {
+                for (int dx = 0; dx < 16; dx++)
+                {
+                    blackhole.consume(MathHelpers.hash(salt, x + dx, y + dy, z + dz));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] hashSectionBulk()
+    {
+        MathHelpers.hashSection(salt, x, y, z, 16, sectionHashes);
+        return sectionHashes;
+    }
+
+    @Benchmark
+    public boolean perfectMatchExists()
+    {
+        return MathHelpers.perfectMatchExists(inputs, tests);
+    }
+
+    @Benchmark
+    public boolean perfectMatchNotExists()
+    {
+        return MathHelpers.perfectMatchExists(inputs, unmatchableTests);
+    }
+}
@@ -1,6 +1,8 @@
 package dev.cassis2310.falloutmc;
 
+import dev.cassis2310.falloutmc.client.ClientEventHandler;
 import dev.cassis2310.falloutmc.init.*;
+import dev.cassis2310.falloutmc.network.PacketHandler;
 import dev.cassis2310.falloutmc.util.Helpers;
 import dev.cassis2310.falloutmc.util.SelfTests;
 import net.neoforged.fml.event.lifecycle.FMLLoadCompleteEvent;
@@ -11,6 +13,8 @@ import org.slf4j.Logger;
 
 import com.mojang.logging.LogUtils;
 
+import net.minecraft.client.renderer.entity.NoopRenderer;
+
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.bus.api.SubscribeEvent;
@@ -20,6 +24,7 @@ import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.config.ModConfig;
 import net.neoforged.fml.event.lifecycle.FMLClientSetupEvent;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.neoforged.neoforge.client.event.EntityRenderersEvent;
 import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.event.BuildCreativeModeTabContentsEvent;
 import net.neoforged.neoforge.event.server.ServerStartingEvent;
@@ -59,14 +64,18 @@ public class FalloutMc
         FalloutMcParticles.register(bus);
         FalloutMcDataComponents.register(bus);
         FalloutMcContainerTypes.register(bus);
+        FalloutMcAttachments.register(bus);
+        FalloutMcRegistries.register(bus);
+        PacketHandler.init(bus);
 
         NeoForge.EVENT_BUS.register(this);
+        ForgeEventHandler.init();
         bus.addListener(this::addCreative);
         container.registerConfig(ModConfig.Type.COMMON, Config.SPEC);
 
         if (FMLEnvironment.dist == Dist.CLIENT)
         {
-            // Some client thingies.
+            ClientEventHandler.init();
         }
 
         NeoForgeMod.enableMilkFluid();
@@ -115,6 +124,13 @@ public class FalloutMc
         {
             // Some client setup code
         }
+
+        @SubscribeEvent
+        public static void onRegisterRenderers(EntityRenderersEvent.RegisterRenderers event)
+        {
+            // Nukes have no model yet, and are shown by their smoke trail
+            event.registerEntityRenderer(FalloutMcEntities.MINI_NUKE.get(), NoopRenderer::new);
+        }
     }
 
     @SuppressWarnings({"AssertWithSideEffects", "ConstantConditions"})
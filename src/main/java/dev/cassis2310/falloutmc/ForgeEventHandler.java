@@ -0,0 +1,167 @@
+package dev.cassis2310.falloutmc;
+
+import dev.cassis2310.falloutmc.blast.NuclearBlast;
+import dev.cassis2310.falloutmc.radiation.RadiationExposure;
+import dev.cassis2310.falloutmc.radiation.RadiationField;
+import dev.cassis2310.falloutmc.radiation.RadiationSync;
+import dev.cassis2310.falloutmc.util.CachedTag;
+import dev.cassis2310.falloutmc.util.Helpers;
+import dev.cassis2310.falloutmc.util.IngredientMatchCache;
+import dev.cassis2310.falloutmc.util.ItemEntityIndex;
+import dev.cassis2310.falloutmc.util.RecipeManagers;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.neoforged.bus.api.EventPriority;
+import net.neoforged.bus.api.IEventBus;
+import net.neoforged.fml.LogicalSide;
+import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.OnDatapackSyncEvent;
+import net.neoforged.neoforge.event.TagsUpdatedEvent;
+import net.neoforged.neoforge.event.entity.EntityEvent;
+import net.neoforged.neoforge.event.entity.EntityJoinLevelEvent;
+import net.neoforged.neoforge.event.entity.EntityLeaveLevelEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+import net.neoforged.neoforge.event.level.ChunkWatchEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+
+/**
+ * Handlers for events fired on the game event bus, which apply to both sides.
+ */
+public final class ForgeEventHandler
+{
+    public static void init()
+    {
+        final IEventBus bus = NeoForge.EVENT_BUS;
+
+        bus.addListener(ForgeEventHandler::onTagsUpdated);
+        bus.addListener(ForgeEventHandler::onServerStarted);
+        bus.addListener(ForgeEventHandler::onDatapackSync);
+        bus.addListener(ForgeEventHandler::onServerStopped);
+        bus.addListener(EventPriority.LOWEST, ForgeEventHandler::onEntityJoinLevel);
+        bus.addListener(ForgeEventHandler::onEntityLeaveLevel);
+        bus.addListener(ForgeEventHandler::onEntityEnteringSection);
+        bus.addListener(ForgeEventHandler::onLevelTick);
+        bus.addListener(ForgeEventHandler::onLevelUnload);
+        bus.addListener(ForgeEventHandler::onChunkLoad);
+        bus.addListener(ForgeEventHandler::onServerTick);
+        bus.addListener(ForgeEventHandler::onChunkWatch);
+        bus.addListener(ForgeEventHandler::onChunkUnWatch);
+        bus.addListener(ForgeEventHandler::onPlayerLoggedOut);
+        bus.addListener(ForgeEventHandler::onPlayerChangedDimension);
+    }
+
+    public static void onTagsUpdated(TagsUpdatedEvent event)
+    {
+        // Tag contents, and so what ingredients accept, may change after a reload
+        IngredientMatchCache.invalidateAll();
+        CachedTag.invalidateAll();
+        RecipeManagers.invalidate(event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD ? LogicalSide.SERVER : LogicalSide.CLIENT);
+    }
+
+    public static void onServerStarted(ServerStartedEvent event)
+    {
+        // Only publish once the initial reload has completed, so readers never see a manager which is still being filled
+        Helpers.setCachedRecipeManager(event.getServer().getRecipeManager());
+    }
+
+    public static void onDatapackSync(OnDatapackSyncEvent event)
+    {
+        // Fired without a player once a /reload has completed successfully. A failed reload keeps the previous manager, which is still live
+        if (event.getPlayer() == null)
+        {
+            Helpers.setCachedRecipeManager(event.getPlayerList().getServer().getRecipeManager());
+        }
+    }
+
+    public static void onServerStopped(ServerStoppedEvent event)
+    {
+        RecipeManagers.clear(LogicalSide.SERVER);
+    }
+
+    public static void onEntityJoinLevel(EntityJoinLevelEvent event)
+    {
+        // Listen last, so entities which another listener prevents from joining are never indexed
+        if (event.isCanceled())
+        {
+            return;
+        }
+        ItemEntityIndex.onJoin(event.getEntity(), event.getLevel());
+    }
+
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event)
+    {
+        ItemEntityIndex.onLeave(event.getEntity(), event.getLevel());
+    }
+
+    public static void onEntityEnteringSection(EntityEvent.EnteringSection event)
+    {
+        ItemEntityIndex.onMove(event.getEntity(), event.getPackedNewPos());
+    }
+
+    public static void onLevelTick(LevelTickEvent.Post event)
+    {
+        ItemEntityIndex.onLevelTick(event.getLevel());
+        NuclearBlast.onLevelTick(event.getLevel());
+        RadiationField.onLevelTick(event.getLevel());
+        if (event.getLevel() instanceof ServerLevel level)
+        {
+            RadiationSync.onLevelTick(level);
+        }
+    }
+
+    public static void onLevelUnload(LevelEvent.Unload event)
+    {
+        if (event.getLevel() instanceof Level level)
+        {
+            ItemEntityIndex.onUnload(level);
+            RadiationField.onUnload(level);
+            NuclearBlast.onUnload(level);
+        }
+    }
+
+    public static void onChunkLoad(ChunkEvent.Load event)
+    {
+        if (event.getChunk() instanceof LevelChunk chunk && event.getLevel() instanceof Level level)
+        {
+            RadiationField.onChunkLoad(level, chunk);
+        }
+    }
+
+    public static void onServerTick(ServerTickEvent.Post event)
+    {
+        RadiationExposure.onServerTick(event.getServer());
+    }
+
+    public static void onChunkWatch(ChunkWatchEvent.Watch event)
+    {
+        RadiationSync.onWatch(event.getLevel(), event.getPlayer(), event.getPos());
+    }
+
+    public static void onChunkUnWatch(ChunkWatchEvent.UnWatch event)
+    {
+        RadiationSync.onUnWatch(event.getPlayer(), event.getPos());
+    }
+
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event)
+    {
+        if (event.getEntity() instanceof ServerPlayer player)
+        {
+            RadiationSync.onReset(player);
+        }
+    }
+
+    public static void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event)
+    {
+        if (event.getEntity() instanceof ServerPlayer player)
+        {
+            RadiationSync.onReset(player);
+        }
+    }
+}
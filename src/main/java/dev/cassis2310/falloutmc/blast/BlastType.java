@@ -0,0 +1,38 @@
+package dev.cassis2310.falloutmc.blast;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.cassis2310.falloutmc.init.FalloutMcRegistries;
+import dev.cassis2310.falloutmc.radiation.RadiationField;
+import dev.cassis2310.falloutmc.util.Helpers;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.util.ExtraCodecs;
+
+/**
+ * The properties of a nuclear blast, loaded from data packs, from {@code data/<namespace>/falloutmc/blast_type/<name>.json}.
+ *
+ * @param radius      The maximum distance, in blocks, which the blast can reach.
+ * @param power       The energy of each ray cast from the center. This is spent by the explosion resistance of each block a ray passes through,
+ *                    and evenly over the radius, so in open air a ray reaches exactly {@code radius}.
+ * @param dropChance  The chance, from 0 to 1, that a destroyed block drops its items.
+ * @param damage      The damage dealt to entities at the center, falling off linearly to none at {@code radius}.
+ * @param radiation   The strength of the radiation source left at the center, from 0 to {@link RadiationField#MAX_LEVEL}.
+ */
+public record BlastType(int radius, float power, float dropChance, float damage, int radiation)
+{
+    public static final Codec<BlastType> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+        Codec.intRange(1, NuclearBlast.MAX_RADIUS).fieldOf("radius").forGetter(BlastType::radius),
+        ExtraCodecs.POSITIVE_FLOAT.fieldOf("power").forGetter(BlastType::power),
+        Codec.floatRange(0, 1).optionalFieldOf("drop_chance", 0f).forGetter(BlastType::dropChance),
+        Codec.floatRange(0, Float.MAX_VALUE).optionalFieldOf("damage", 0f).forGetter(BlastType::damage),
+        Codec.intRange(0, RadiationField.MAX_LEVEL).optionalFieldOf("radiation", 0).forGetter(BlastType::radiation)
+    ).apply(instance, BlastType::new));
+
+    public static final ResourceKey<BlastType> MINI_NUKE = key("mini_nuke");
+    public static final ResourceKey<BlastType> FAT_MAN = key("fat_man");
+
+    private static ResourceKey<BlastType> key(String name)
+    {
+        return ResourceKey.create(FalloutMcRegistries.BLAST_TYPE, Helpers.identifier(name));
+    }
+}
@@ -0,0 +1,658 @@
+package dev.cassis2310.falloutmc.blast;
+
+import com.mojang.logging.LogUtils;
+import dev.cassis2310.falloutmc.radiation.RadiationField;
+import dev.cassis2310.falloutmc.util.Helpers;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.sounds.SoundEvents;
+import net.minecraft.sounds.SoundSource;
+import net.minecraft.util.Mth;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Explosion;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.LiquidBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.event.EventHooks;
+import net.neoforged.neoforge.event.level.ExplosionEvent;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A nuclear blast. Vanilla's {@link Explosion} traces its rays on the server thread, through the live level, which does not scale to the radius
+ * of a nuke. Instead, a blast runs in three stages:
+ * <ol>
+ *     <li>On the server thread, the block states of every section in range are copied. Copying a {@link PalettedContainer} is a few array copies,
+ *     and the copies are never modified, so they can be read from any thread.</li>
+ *     <li>On the {@link ForkJoinPool#commonPool() common pool}, rays are cast from the center in evenly spaced directions, split into tasks of
+ *     {@link #RAYS_PER_TASK} rays each. Each ray walks the blocks it passes through, spending its energy on their explosion resistance, and
+ *     destroying them, until it runs out. The destroyed positions are then grouped by section, still on the pool.</li>
+ *     <li>Back on the server thread, the destroyed blocks are removed section by section, up to {@link #BLOCKS_PER_TICK} per tick. Blocks which
+ *     have not changed since they were copied, and have no block entity or fluid, are written directly to the {@link LevelChunkSection}, and
+ *     the heightmaps, lighting, and clients are updated once per block, with neighbour and shape updates only on the edge of the crater. Blocks
+ *     with a block entity or fluid are removed the normal way. Blocks which changed while the blast was traced are kept, and are part of the
+ *     edge. Drops are gathered per section, and spawned as merged stacks.</li>
+ * </ol>
+ * The blast fires the usual {@link ExplosionEvent}s, so protection mods can stop it: {@link ExplosionEvent.Start} when it is detonated, and
+ * {@link ExplosionEvent.Detonate} once it has been traced, with every destroyed position in {@link Explosion#getToBlow()}. Positions removed from
+ * that list are not destroyed, and entities removed from the entity list are not damaged. Damage is dealt when the blast has been traced,
+ * and is not occluded by blocks.
+ */
+public final class NuclearBlast
+{
+    public static final int MAX_RADIUS = 128;
+
+    /**
+     * The number of rays per square block on the sphere at the blast radius, so rays are less than a block apart when they reach it.
+     */
+    private static final double RAY_DENSITY = 1.5;
+
+    private static final int RAYS_PER_TASK = 256;
+
+    /**
+     * The maximum number of blocks removed per level tick, across all blasts. Anything more is continued on the next tick.
+     */
+    private static final int BLOCKS_PER_TICK = 1 << 16;
+
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    // Blasts which have been traced, and are waiting to be applied. Only accessed from the server thread.
+    private static final Map<Level, ArrayDeque<NuclearBlast>> PENDING = new IdentityHashMap<>();
+
+    /**
+     * Detonates a blast. Entities are damaged, and blocks destroyed, once the blast has been traced, usually within a few ticks.
+     *
+     * @param level  The level.
+     * @param center The center of the blast.
+     * @param type   The type of blast.
+     * @param source The entity which exploded, if any.
+     * @param owner  The entity responsible for the blast, if any.
+     */
+    public static void detonate(ServerLevel level, Vec3 center, BlastType type, @Nullable Entity source, @Nullable Entity owner)
+    {
+        final DamageSource damageSource = level.damageSources().explosion(source, owner);
+        final Explosion explosion = new Explosion(level, source, damageSource, null, center.x, center.y, center.z, type.radius(), false,
+            Explosion.BlockInteraction.DESTROY, ParticleTypes.EXPLOSION, ParticleTypes.EXPLOSION_EMITTER, SoundEvents.GENERIC_EXPLODE);
+        if (EventHooks.onExplosionStart(level, explosion))
+        {
+            return;
+        }
+
+        level.playSound(null, center.x, center.y, center.z, SoundEvents.GENERIC_EXPLODE, SoundSource.BLOCKS, 16f, 0.5f);
+        level.sendParticles(ParticleTypes.EXPLOSION_EMITTER, center.x, center.y, center.z, 8, type.radius() / 4d, type.radius() / 8d, type.radius() / 4d, 0);
+        if (type.radiation() > 0)
+        {
+            RadiationField.addSource(level, BlockPos.containing(center), type.radiation());
+        }
+
+        final Snapshot snapshot = Snapshot.capture(level, center, type.radius());
+        CompletableFuture.supplyAsync(() -> trace(snapshot, center, type), ForkJoinPool.commonPool())
+            .thenAcceptAsync(traced -> {
+                // The level may have been unloaded while tracing
+                if (level.getServer().getLevel(level.dimension()) == level)
+                {
+                    onTraced(level, center, type, explosion, damageSource, snapshot, traced);
+                }
+            }, level.getServer())
+            .exceptionally(e -> {
+                LOGGER.error("Error tracing nuclear blast at {}", center, e);
+                return null;
+            });
+    }
+
+    /**
+     * Called at the end of each level tick, to apply traced blasts.
+     */
+    public static void onLevelTick(Level level)
+    {
+        final ArrayDeque<NuclearBlast> blasts = PENDING.get(level);
+        if (blasts == null)
+        {
+            return;
+        }
+        int budget = BLOCKS_PER_TICK;
+        while (!blasts.isEmpty() && budget > 0)
+        {
+            final NuclearBlast blast = blasts.peekFirst();
+            budget = blast.apply(budget);
+            if (blast.isDone())
+            {
+                blasts.removeFirst();
+            }
+        }
+        if (blasts.isEmpty())
+        {
+            PENDING.remove(level);
+        }
+    }
+
+    /**
+     * Called when a level is unloaded. Any blasts which have not been applied are discarded.
+     */
+    public static void onUnload(Level level)
+    {
+        PENDING.remove(level);
+    }
+
+    /**
+     * Called on the server thread once a blast has been traced. Lets listeners filter the destroyed blocks and damaged entities, then damages
+     * the entities, and queues the blocks to be removed.
+     */
+    private static void onTraced(ServerLevel level, Vec3 center, BlastType type, Explosion explosion, DamageSource damageSource, Snapshot snapshot, Traced traced)
+    {
+        final int radius = type.radius();
+        final List<Entity> entities = level.getEntities(explosion.getDirectSourceEntity(), new AABB(center, center).inflate(radius));
+        final ObjectArrayList<BlockPos> toBlow = explosion.getToBlow();
+        toBlow.addAll(traced.positions);
+
+        EventHooks.onExplosionDetonate(level, explosion, entities, radius * 2d);
+
+        hurtEntities(center, type, damageSource, entities);
+
+        // Only build a lookup of the remaining positions if a listener removed any
+        final Traced result = toBlow.size() == traced.positions.size() ? traced : traced.retain(toBlow);
+        explosion.clearToBlow();
+        PENDING.computeIfAbsent(level, key -> new ArrayDeque<>()).add(new NuclearBlast(level, type, snapshot, result));
+    }
+
+    private static void hurtEntities(Vec3 center, BlastType type, DamageSource damageSource, List<Entity> entities)
+    {
+        if (type.damage() <= 0)
+        {
+            return;
+        }
+        final int radius = type.radius();
+        for (Entity entity : entities)
+        {
+            final Vec3 offset = entity.position().subtract(center);
+            final double distance = offset.length();
+            if (distance > radius || entity.isSpectator() || entity.isRemoved())
+            {
+                continue;
+            }
+            final float falloff = (float) (1 - distance / radius);
+            entity.hurt(damageSource, type.damage() * falloff);
+            entity.setDeltaMovement(entity.getDeltaMovement().add(offset.normalize().scale(2 * falloff)));
+            entity.hurtMarked = true;
+        }
+    }
+
+    /**
+     * Casts every ray of a blast, and groups the destroyed positions by section. Called off the server thread.
+     */
+    private static Traced trace(Snapshot snapshot, Vec3 center, BlastType type)
+    {
+        final int rays = Mth.ceil(4 * Math.PI * type.radius() * type.radius() * RAY_DENSITY);
+        final LongOpenHashSet destroyed = new RayTask(snapshot, center, type, 0, rays).invoke();
+        return Traced.group(destroyed);
+    }
+
+    private final ServerLevel level;
+    private final BlastType type;
+    private final Snapshot snapshot;
+    private final long[] sectionKeys;
+    private final LongArrayList[] sectionPositions;
+    private final LongOpenHashSet destroyed;
+    private int cursor = 0;
+
+    private NuclearBlast(ServerLevel level, BlastType type, Snapshot snapshot, Traced traced)
+    {
+        this.level = level;
+        this.type = type;
+        this.snapshot = snapshot;
+        this.sectionKeys = traced.sectionKeys;
+        this.sectionPositions = traced.sectionPositions;
+        this.destroyed = traced.destroyed;
+    }
+
+    private boolean isDone()
+    {
+        return cursor >= sectionKeys.length;
+    }
+
+    /**
+     * Removes the destroyed blocks of as many sections as fit in {@code budget}.
+     *
+     * @return The remaining budget.
+     */
+    private int apply(int budget)
+    {
+        while (cursor < sectionKeys.length && budget > 0)
+        {
+            final LongArrayList positions = sectionPositions[cursor];
+            applySection(sectionKeys[cursor], positions);
+            sectionPositions[cursor++] = null;
+            budget -= positions.size();
+        }
+        return budget;
+    }
+
+    private void applySection(long sectionKey, LongArrayList positions)
+    {
+        final LevelChunk chunk = level.getChunkSource().getChunkNow(SectionPos.x(sectionKey), SectionPos.z(sectionKey));
+        final PalettedContainer<BlockState> copy = snapshot.sections.get(sectionKey);
+        if (chunk == null || copy == null || positions.isEmpty())
+        {
+            return;
+        }
+
+        final LevelChunkSection section = chunk.getSection(level.getSectionIndexFromSectionY(SectionPos.y(sectionKey)));
+        final boolean wasEmpty = section.hasOnlyAir();
+        final BlockState air = Blocks.AIR.defaultBlockState();
+
+        final LongArrayList fast = new LongArrayList(positions.size());
+        final List<BlockState> fastStates = new ArrayList<>(positions.size());
+        final List<BlockPos> slow = new ArrayList<>();
+        final List<BlockState> dropStates = new ArrayList<>();
+        final List<BlockPos> dropPositions = new ArrayList<>();
+        final List<BlockPos> skipped = new ArrayList<>();
+
+        for (int i = 0; i < positions.size(); i++)
+        {
+            final long pos = positions.getLong(i);
+            final int x = BlockPos.getX(pos) & 15, y = BlockPos.getY(pos) & 15, z = BlockPos.getZ(pos) & 15;
+            final BlockState state = section.getBlockState(x, y, z);
+            if (state.isAir() || state != copy.get(x, y, z))
+            {
+                // Changed while the blast was being traced, so the ray which destroyed it may not have. It is no longer part of the crater,
+                // so it is on its edge, and must react to its neighbours being removed
+                destroyed.remove(pos);
+                if (!state.isAir())
+                {
+                    skipped.add(BlockPos.of(pos));
+                }
+                continue;
+            }
+            if (state.hasBlockEntity() || !state.getFluidState().isEmpty())
+            {
+                slow.add(BlockPos.of(pos));
+                continue;
+            }
+            if (level.random.nextFloat() < type.dropChance())
+            {
+                dropStates.add(state);
+                dropPositions.add(BlockPos.of(pos));
+            }
+            fast.add(pos);
+            fastStates.add(state);
+        }
+
+        // Drops must be generated before the blocks are removed
+        if (!dropStates.isEmpty())
+        {
+            Helpers.dropWithContext(level, dropStates, dropPositions, builder -> builder.withParameter(LootContextParams.EXPLOSION_RADIUS, (float) type.radius()), dropPositions.getFirst());
+        }
+
+        final BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < fast.size(); i++)
+        {
+            final long pos = fast.getLong(i);
+            final int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+            section.setBlockState(x & 15, y & 15, z & 15, air, false);
+            for (Map.Entry<Heightmap.Types, Heightmap> heightmap : chunk.getHeightmaps())
+            {
+                heightmap.getValue().update(x & 15, y, z & 15, air);
+            }
+            cursor.set(x, y, z);
+            level.onBlockStateChange(cursor, fastStates.get(i), air);
+            level.getChunkSource().blockChanged(cursor);
+            level.getChunkSource().getLightEngine().checkBlock(cursor);
+        }
+        if (wasEmpty != section.hasOnlyAir())
+        {
+            level.getChunkSource().getLightEngine().updateSectionStatus(SectionPos.of(sectionKey), section.hasOnlyAir());
+        }
+        chunk.setUnsaved(true);
+
+        // Only blocks on the edge of the crater need to react to their neighbours being removed. As with Level#setBlock, neighbours are first
+        // notified, and then their shapes are updated, so attached blocks pop off, connections update, and falling blocks are scheduled.
+        for (int i = 0; i < fast.size(); i++)
+        {
+            final BlockPos pos = BlockPos.of(fast.getLong(i));
+            for (Direction direction : DIRECTIONS)
+            {
+                if (!destroyed.contains(pos.relative(direction).asLong()))
+                {
+                    updateEdge(pos, direction);
+                }
+            }
+        }
+
+        // Skipped blocks next to this section were not yet known to be skipped when their neighbours in earlier sections were removed
+        for (BlockPos pos : skipped)
+        {
+            for (Direction direction : DIRECTIONS)
+            {
+                final BlockPos neighbor = pos.relative(direction);
+                if (SectionPos.blockToSection(neighbor.asLong()) != sectionKey && destroyed.contains(neighbor.asLong()) && level.getBlockState(neighbor).isAir())
+                {
+                    updateEdge(neighbor, direction.getOpposite());
+                }
+            }
+        }
+
+        for (BlockPos pos : slow)
+        {
+            if (level.random.nextFloat() < type.dropChance())
+            {
+                Helpers.destroyBlockAndDropBlocksManually(level, pos, builder -> builder.withParameter(LootContextParams.EXPLOSION_RADIUS, (float) type.radius()));
+            }
+            else
+            {
+                level.setBlock(pos, level.getFluidState(pos).createLegacyBlock(), 3);
+            }
+        }
+    }
+
+    /**
+     * Notifies the block next to a removed block, in {@code direction}, as {@link Level#setBlock} would.
+     */
+    private void updateEdge(BlockPos removed, Direction direction)
+    {
+        final BlockPos neighbor = removed.relative(direction);
+        level.neighborChanged(neighbor, Blocks.AIR, removed);
+        final BlockState neighborState = level.getBlockState(neighbor);
+        final BlockState updatedState = neighborState.updateShape(direction.getOpposite(), level.getBlockState(removed), level, neighbor, removed);
+        Block.updateOrDestroy(neighborState, updatedState, level, neighbor, Block.UPDATE_ALL);
+    }
+
+    /**
+     * The result of tracing a blast: the destroyed positions grouped by section, and as a set, for finding the edge of the crater, and a list,
+     * for {@link Explosion#getToBlow()}. All of these are built off the server thread.
+     */
+    record Traced(long[] sectionKeys, LongArrayList[] sectionPositions, LongOpenHashSet destroyed, List<BlockPos> positions)
+    {
+        static Traced group(LongOpenHashSet destroyed)
+        {
+            final Long2ObjectMap<LongArrayList> sections = new Long2ObjectOpenHashMap<>();
+            final List<BlockPos> positions = new ArrayList<>(destroyed.size());
+            final LongIterator iterator = destroyed.iterator();
+            while (iterator.hasNext())
+            {
+                final long pos = iterator.nextLong();
+                sections.computeIfAbsent(SectionPos.blockToSection(pos), key -> new LongArrayList()).add(pos);
+                positions.add(BlockPos.of(pos));
+            }
+
+            final long[] sectionKeys = new long[sections.size()];
+            final LongArrayList[] sectionPositions = new LongArrayList[sections.size()];
+            int i = 0;
+            for (Long2ObjectMap.Entry<LongArrayList> entry : sections.long2ObjectEntrySet())
+            {
+                sectionKeys[i] = entry.getLongKey();
+                sectionPositions[i++] = entry.getValue();
+            }
+            return new Traced(sectionKeys, sectionPositions, destroyed, positions);
+        }
+
+        /**
+         * @return A copy with only the positions which are also in {@code kept}. Positions in {@code kept} which were not traced are ignored.
+         */
+        Traced retain(List<BlockPos> kept)
+        {
+            final LongOpenHashSet retained = new LongOpenHashSet(kept.size());
+            for (BlockPos pos : kept)
+            {
+                final long packed = pos.asLong();
+                if (destroyed.contains(packed))
+                {
+                    retained.add(packed);
+                }
+            }
+            final LongArrayList[] filtered = new LongArrayList[sectionPositions.length];
+            for (int i = 0; i < sectionPositions.length; i++)
+            {
+                filtered[i] = new LongArrayList(sectionPositions[i]);
+                filtered[i].removeIf(pos -> !retained.contains(pos));
+            }
+            return new Traced(sectionKeys, filtered, retained, List.of());
+        }
+    }
+
+    /**
+     * Copies of the block states of every loaded section within range of a blast.
+     */
+    static final class Snapshot
+    {
+        static Snapshot capture(ServerLevel level, Vec3 center, int radius)
+        {
+            final Snapshot snapshot = new Snapshot(level.getMinBuildHeight(), level.getMaxBuildHeight());
+            final int minX = SectionPos.blockToSectionCoord(center.x - radius), maxX = SectionPos.blockToSectionCoord(center.x + radius);
+            final int minZ = SectionPos.blockToSectionCoord(center.z - radius), maxZ = SectionPos.blockToSectionCoord(center.z + radius);
+            final int minY = Math.max(level.getMinSection(), SectionPos.blockToSectionCoord(center.y - radius));
+            final int maxY = Math.min(level.getMaxSection() - 1, SectionPos.blockToSectionCoord(center.y + radius));
+            final double radiusSq = (double) radius * radius;
+
+            for (int chunkX = minX; chunkX <= maxX; chunkX++)
+            {
+                for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++)
+                {
+                    final LevelChunk chunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+                    if (chunk == null)
+                    {
+                        continue;
+                    }
+                    for (int sectionY = minY; sectionY <= maxY; sectionY++)
+                    {
+                        if (distanceSqToSection(center, chunkX, sectionY, chunkZ) <= radiusSq)
+                        {
+                            final LevelChunkSection section = chunk.getSection(level.getSectionIndexFromSectionY(sectionY));
+                            snapshot.sections.put(SectionPos.asLong(chunkX, sectionY, chunkZ), section.getStates().copy());
+                        }
+                    }
+                }
+            }
+            return snapshot;
+        }
+
+        private static double distanceSqToSection(Vec3 center, int sectionX, int sectionY, int sectionZ)
+        {
+            final double dx = center.x - Mth.clamp(center.x, sectionX << 4, (sectionX << 4) + 16);
+            final double dy = center.y - Mth.clamp(center.y, sectionY << 4, (sectionY << 4) + 16);
+            final double dz = center.z - Mth.clamp(center.z, sectionZ << 4, (sectionZ << 4) + 16);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        final Long2ObjectMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+        final int minBuildHeight, maxBuildHeight;
+
+        Snapshot(int minBuildHeight, int maxBuildHeight)
+        {
+            this.minBuildHeight = minBuildHeight;
+            this.maxBuildHeight = maxBuildHeight;
+        }
+    }
+
+    /**
+     * Casts a range of the rays of a blast, splitting in half until there are at most {@link #RAYS_PER_TASK}.
+     */
+    static final class RayTask extends RecursiveTask<LongOpenHashSet>
+    {
+        private final Snapshot snapshot;
+        private final Vec3 center;
+        private final BlastType type;
+        private final int start, end, rays;
+
+        RayTask(Snapshot snapshot, Vec3 center, BlastType type, int start, int end)
+        {
+            this(snapshot, center, type, start, end, end);
+        }
+
+        private RayTask(Snapshot snapshot, Vec3 center, BlastType type, int start, int end, int rays)
+        {
+            this.snapshot = snapshot;
+            this.center = center;
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.rays = rays;
+        }
+
+        @Override
+        protected LongOpenHashSet compute()
+        {
+            if (end - start > RAYS_PER_TASK)
+            {
+                final int middle = (start + end) >>> 1;
+                final RayTask left = new RayTask(snapshot, center, type, start, middle, rays);
+                left.fork();
+                final LongOpenHashSet right = new RayTask(snapshot, center, type, middle, end, rays).compute();
+                final LongOpenHashSet joined = left.join();
+                // Merge the smaller set into the larger
+                if (joined.size() > right.size())
+                {
+                    joined.addAll(right);
+                    return joined;
+                }
+                right.addAll(joined);
+                return right;
+            }
+
+            final LongOpenHashSet destroyed = new LongOpenHashSet();
+            final Ray ray = new Ray(snapshot, destroyed);
+            for (int i = start; i < end; i++)
+            {
+                // Evenly spaced directions, on a Fibonacci sphere
+                final double y = 1 - 2 * (i + 0.5) / rays;
+                final double horizontal = Math.sqrt(1 - y * y);
+                final double angle = i * GOLDEN_ANGLE;
+
+                // Vary the energy of each ray slightly, so the crater is not a perfect sphere
+                final float jitter = 0.85f + 0.3f * ((i * 0x9E3779B97F4A7C15L) >>> 40) / (1 << 24);
+                ray.cast(center, Math.cos(angle) * horizontal, y, Math.sin(angle) * horizontal, type.power() * jitter, type.power() / type.radius(), type.radius());
+            }
+            return destroyed;
+        }
+    }
+
+    /**
+     * Walks a ray through the snapshot, visiting every block it passes through exactly once.
+     */
+    static final class Ray
+    {
+        private final Snapshot snapshot;
+        private final LongOpenHashSet destroyed;
+
+        // A single entry cache of the last section looked up, as consecutive blocks are almost always in the same section
+        private long cachedSectionKey = Long.MAX_VALUE;
+        private @Nullable PalettedContainer<BlockState> cachedSection = null;
+
+        Ray(Snapshot snapshot, LongOpenHashSet destroyed)
+        {
+            this.snapshot = snapshot;
+            this.destroyed = destroyed;
+        }
+
+        /**
+         * @param energy      The initial energy of the ray.
+         * @param attenuation The energy lost per block travelled, regardless of what is there.
+         * @param radius      The maximum distance the ray travels.
+         */
+        void cast(Vec3 origin, double dx, double dy, double dz, float energy, float attenuation, int radius)
+        {
+            int x = Mth.floor(origin.x), y = Mth.floor(origin.y), z = Mth.floor(origin.z);
+            final int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1, stepZ = dz > 0 ? 1 : -1;
+
+            // The distance along the ray to cross one block on each axis, and to reach the next block boundary on each axis
+            final double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+            final double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+            final double deltaZ = dz == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dz);
+            double nextX = deltaX * (dx > 0 ? x + 1 - origin.x : origin.x - x);
+            double nextY = deltaY * (dy > 0 ? y + 1 - origin.y : origin.y - y);
+            double nextZ = deltaZ * (dz > 0 ? z + 1 - origin.z : origin.z - z);
+
+            double travelled = 0;
+            while (travelled < radius)
+            {
+                final BlockState state = get(x, y, z);
+                if (state == null)
+                {
+                    // Unloaded, or outside the build height
+                    return;
+                }
+
+                final double exit = Math.min(nextX, Math.min(nextY, nextZ));
+                energy -= (float) (attenuation * (Math.min(exit, radius) - travelled));
+                if (!state.isAir())
+                {
+                    energy -= Math.max(state.getBlock().getExplosionResistance(), state.getFluidState().getExplosionResistance());
+                    if (energy <= 0)
+                    {
+                        return;
+                    }
+                    if (!(state.getBlock() instanceof LiquidBlock))
+                    {
+                        destroyed.add(BlockPos.asLong(x, y, z));
+                    }
+                }
+                else if (energy <= 0)
+                {
+                    return;
+                }
+
+                travelled = exit;
+                if (exit == nextX)
+                {
+                    x += stepX;
+                    nextX += deltaX;
+                }
+                else if (exit == nextY)
+                {
+                    y += stepY;
+                    nextY += deltaY;
+                }
+                else
+                {
+                    z += stepZ;
+                    nextZ += deltaZ;
+                }
+            }
+        }
+
+        @Nullable
+        private BlockState get(int x, int y, int z)
+        {
+            if (y < snapshot.minBuildHeight || y >= snapshot.maxBuildHeight)
+            {
+                return null;
+            }
+            final long key = SectionPos.asLong(x >> 4, y >> 4, z >> 4);
+            if (key != cachedSectionKey)
+            {
+                cachedSection = snapshot.sections.get(key);
+                cachedSectionKey = key;
+            }
+            return cachedSection == null ? null : cachedSection.get(x & 15, y & 15, z & 15);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.cassis2310.falloutmc.client;
+
+import dev.cassis2310.falloutmc.util.RecipeManagers;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.neoforged.bus.api.IEventBus;
+import net.neoforged.fml.LogicalSide;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
+import net.neoforged.neoforge.client.event.RecipesUpdatedEvent;
+import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+
+/**
+ * Handlers for events fired on the game event bus, which only apply to the client.
+ */
+public final class ClientEventHandler
+{
+    public static void init()
+    {
+        final IEventBus bus = NeoForge.EVENT_BUS;
+
+        bus.addListener(ClientEventHandler::onRecipesUpdated);
+        bus.addListener(ClientEventHandler::onLoggingOut);
+        bus.addListener(ClientEventHandler::onLevelUnload);
+        bus.addListener(ClientEventHandler::onChunkUnload);
+        bus.addListener(ClientEventHandler::onClientTick);
+    }
+
+    public static void onRecipesUpdated(RecipesUpdatedEvent event)
+    {
+        RecipeManagers.publish(LogicalSide.CLIENT, event.getRecipeManager());
+    }
+
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event)
+    {
+        RecipeManagers.clear(LogicalSide.CLIENT);
+        ClientRadiationCache.clear();
+        GeigerCounter.reset();
+    }
+
+    public static void onLevelUnload(LevelEvent.Unload event)
+    {
+        if (event.getLevel() instanceof ClientLevel)
+        {
+            ClientRadiationCache.clear();
+        }
+    }
+
+    public static void onChunkUnload(ChunkEvent.Unload event)
+    {
+        if (event.getLevel() instanceof ClientLevel)
+        {
+            ClientRadiationCache.onChunkUnload(event.getChunk().getPos());
+        }
+    }
+
+    public static void onClientTick(ClientTickEvent.Post event)
+    {
+        GeigerCounter.onClientTick();
+    }
+}
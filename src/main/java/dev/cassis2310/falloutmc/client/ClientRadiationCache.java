@@ -0,0 +1,101 @@
+package dev.cassis2310.falloutmc.client;
+
+import dev.cassis2310.falloutmc.network.RadiationSyncPacket;
+import dev.cassis2310.falloutmc.radiation.RadiationSync;
+import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * The client's copy of the radiation field around the player, as sent by {@link RadiationSync}. The field is quantized to cells of 4x4x4 blocks,
+ * so this is an approximation, which is always at least the true level.
+ * <p>
+ * The cache is stored per chunk, so it can be dropped when the client unloads a chunk. All methods must be called on the client thread.
+ */
+public final class ClientRadiationCache
+{
+    // Chunk position -> section y -> cells
+    private static final Long2ObjectMap<Int2ObjectMap<byte[]>> CHUNKS = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * @param pos The position.
+     * @return    The radiation level at {@code pos}, from 0 to 15, or 0 if it has not been sent.
+     */
+    public static int getRadiation(BlockPos pos)
+    {
+        final Int2ObjectMap<byte[]> chunk = CHUNKS.get(ChunkPos.asLong(SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ())));
+        if (chunk == null)
+        {
+            return 0;
+        }
+        final byte[] cells = chunk.get(SectionPos.blockToSectionCoord(pos.getY()));
+        return cells == null ? 0 : cells[RadiationSync.cellIndex(pos.getX(), pos.getY(), pos.getZ())];
+    }
+
+    public static void apply(RadiationSyncPacket packet)
+    {
+        int index = 0;
+        for (int i = 0; i < packet.sections().length; i++)
+        {
+            final long section = packet.sections()[i];
+            final long chunkPos = ChunkPos.asLong(SectionPos.x(section), SectionPos.z(section));
+            final int sectionY = SectionPos.y(section);
+
+            Int2ObjectMap<byte[]> chunk = CHUNKS.get(chunkPos);
+            if (chunk == null)
+            {
+                CHUNKS.put(chunkPos, chunk = new Int2ObjectArrayMap<>());
+            }
+            byte[] cells = chunk.get(sectionY);
+            if (cells == null)
+            {
+                chunk.put(sectionY, cells = new byte[RadiationSync.CELLS_PER_SECTION]);
+            }
+
+            long mask = packet.masks()[i];
+            boolean empty = true;
+            while (mask != 0)
+            {
+                final int cell = Long.numberOfTrailingZeros(mask);
+                cells[cell] = (byte) packet.value(index++);
+                mask &= mask - 1;
+            }
+            for (byte cell : cells)
+            {
+                if (cell != 0)
+                {
+                    empty = false;
+                    break;
+                }
+            }
+            if (empty)
+            {
+                chunk.remove(sectionY);
+                if (chunk.isEmpty())
+                {
+                    CHUNKS.remove(chunkPos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when the client unloads a chunk.
+     */
+    public static void onChunkUnload(ChunkPos pos)
+    {
+        CHUNKS.remove(pos.toLong());
+    }
+
+    /**
+     * Called when the client level is unloaded, or the player logs out.
+     */
+    public static void clear()
+    {
+        CHUNKS.clear();
+    }
+}
@@ -0,0 +1,180 @@
+package dev.cassis2310.falloutmc.client;
+
+import dev.cassis2310.falloutmc.init.FalloutMcSounds;
+import dev.cassis2310.falloutmc.radiation.RadiationField;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.resources.sounds.AbstractSoundInstance;
+import net.minecraft.client.resources.sounds.SoundInstance;
+import net.minecraft.client.sounds.SoundManager;
+import net.minecraft.sounds.SoundSource;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.player.Player;
+
+/**
+ * Plays Geiger counter clicks around the player, at a rate which depends on the radiation level at their position, as read from {@link ClientRadiationCache}.
+ * <p>
+ * Clicks are a Poisson process, so the time between them is exponentially distributed. Rather than sampling a logarithm per click, a table of
+ * unit rate intervals is computed once, and walked through; each tick then only subtracts the current rate from the time until the next click.
+ * As the rate is applied per tick, changing radiation levels change the rate smoothly, without restarting the timeline.
+ * <p>
+ * Clicks are played with a fixed pool of sound instances, which are reused once they finish, rather than creating one per click. If every instance
+ * is still playing, the click is dropped, much like the dead time of a real Geiger tube at high counts.
+ */
+public final class GeigerCounter
+{
+    /**
+     * The number of sound instances, and so the most clicks which can be playing at once.
+     */
+    private static final int POOL_SIZE = 16;
+
+    /**
+     * The most clicks started in a single tick. Any more are dropped, as they would play simultaneously anyway.
+     */
+    private static final int MAX_CLICKS_PER_TICK = 4;
+
+    private static final int TABLE_SIZE = 1024;
+
+    /**
+     * The mean number of clicks per tick at each radiation level. This rises quadratically, from a sparse background count at level 1, to a near
+     * continuous crackle at {@link RadiationField#MAX_LEVEL}.
+     */
+    private static final float[] RATES = new float[RadiationField.MAX_LEVEL + 1];
+
+    /**
+     * Intervals between clicks at a rate of one click per tick, taken from evenly spaced quantiles of the exponential distribution, and shuffled.
+     */
+    private static final float[] INTERVALS = new float[TABLE_SIZE];
+
+    /**
+     * Pitch variations, shuffled so consecutive clicks do not sound identical.
+     */
+    private static final float[] PITCHES = new float[TABLE_SIZE];
+
+    private static final Click[] POOL = new Click[POOL_SIZE];
+
+    private static int intervalIndex = 0, pitchIndex = 0, poolIndex = 0;
+    private static float untilNextClick = -1;
+
+    static
+    {
+        for (int level = 1; level < RATES.length; level++)
+        {
+            // Clicks per second, converted to clicks per tick
+            RATES[level] = (0.5f + 0.75f * level * level) / 20f;
+        }
+
+        final RandomSource random = RandomSource.create(0);
+        for (int i = 0; i < TABLE_SIZE; i++)
+        {
+            INTERVALS[i] = (float) -Math.log(1 - (i + 0.5) / TABLE_SIZE);
+            PITCHES[i] = 0.85f + 0.3f * i / TABLE_SIZE;
+        }
+        shuffle(INTERVALS, random);
+        shuffle(PITCHES, random);
+    }
+
+    /**
+     * Called at the end of each client tick.
+     */
+    public static void onClientTick()
+    {
+        final Player player = ClientHelpers.getPlayer();
+        final Minecraft mc = Minecraft.getInstance();
+        if (player == null || mc.isPaused())
+        {
+            return;
+        }
+
+        final float rate = RATES[ClientRadiationCache.getRadiation(player.blockPosition())];
+        if (rate == 0)
+        {
+            untilNextClick = -1;
+            return;
+        }
+        if (untilNextClick < 0)
+        {
+            // Start a new timeline, so entering radiation does not always click immediately
+            untilNextClick = nextInterval();
+        }
+
+        untilNextClick -= rate;
+        int clicks = 0;
+        while (untilNextClick <= 0 && clicks++ < MAX_CLICKS_PER_TICK)
+        {
+            play(mc.getSoundManager());
+            untilNextClick += nextInterval();
+        }
+        if (untilNextClick <= 0)
+        {
+            // Drop the backlog, rather than catching up over the next ticks
+            untilNextClick = nextInterval();
+        }
+    }
+
+    /**
+     * Called when the player logs out.
+     */
+    public static void reset()
+    {
+        untilNextClick = -1;
+    }
+
+    private static void play(SoundManager sounds)
+    {
+        for (int i = 0; i < POOL_SIZE; i++)
+        {
+            final int index = poolIndex;
+            poolIndex = (poolIndex + 1) % POOL_SIZE;
+
+            Click click = POOL[index];
+            if (click == null)
+            {
+                click = POOL[index] = new Click();
+            }
+            else if (sounds.isActive(click))
+            {
+                continue;
+            }
+            click.setPitch(PITCHES[pitchIndex]);
+            pitchIndex = (pitchIndex + 1) % TABLE_SIZE;
+            sounds.play(click);
+            return;
+        }
+    }
+
+    private static float nextInterval()
+    {
+        final float interval = INTERVALS[intervalIndex];
+        intervalIndex = (intervalIndex + 1) % TABLE_SIZE;
+        return interval;
+    }
+
+    private static void shuffle(float[] values, RandomSource random)
+    {
+        for (int i = values.length - 1; i > 0; i--)
+        {
+            final int j = random.nextInt(i + 1);
+            final float value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * A click, played at the listener.
+     */
+    static final class Click extends AbstractSoundInstance
+    {
+        Click()
+        {
+            super(FalloutMcSounds.GEIGER_CLICK.get(), SoundSource.PLAYERS, SoundInstance.createUnseededRandom());
+            this.relative = true;
+            this.attenuation = SoundInstance.Attenuation.NONE;
+        }
+
+        void setPitch(float pitch)
+        {
+            this.pitch = pitch;
+        }
+    }
+}
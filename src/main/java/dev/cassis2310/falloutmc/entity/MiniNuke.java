@@ -0,0 +1,84 @@
+package dev.cassis2310.falloutmc.entity;
+
+import dev.cassis2310.falloutmc.blast.BlastType;
+import dev.cassis2310.falloutmc.blast.NuclearBlast;
+import dev.cassis2310.falloutmc.init.FalloutMcEntities;
+import dev.cassis2310.falloutmc.init.FalloutMcRegistries;
+import net.minecraft.core.particles.ParticleTypes;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.projectile.ThrowableProjectile;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.HitResult;
+
+/**
+ * A nuclear projectile, i.e. a mini nuke or a fat man, which detonates a {@link NuclearBlast} on impact. The blast is looked up by key from the
+ * {@link FalloutMcRegistries#BLAST_TYPE blast type registry}, and can be set with the {@code blast} tag, i.e.
+ * {@code /summon falloutmc:mini_nuke ~ ~ ~ {blast:"falloutmc:fat_man"}}.
+ */
+public class MiniNuke extends ThrowableProjectile
+{
+    private ResourceKey<BlastType> blast = BlastType.MINI_NUKE;
+
+    public MiniNuke(EntityType<? extends MiniNuke> type, Level level)
+    {
+        super(type, level);
+    }
+
+    public MiniNuke(Level level, LivingEntity owner, ResourceKey<BlastType> blast)
+    {
+        super(FalloutMcEntities.MINI_NUKE.get(), owner, level);
+        this.blast = blast;
+    }
+
+    @Override
+    protected void defineSynchedData(SynchedEntityData.Builder builder) {}
+
+    @Override
+    public void tick()
+    {
+        super.tick();
+        if (level().isClientSide)
+        {
+            level().addParticle(ParticleTypes.SMOKE, getX(), getY(), getZ(), 0, 0, 0);
+        }
+    }
+
+    @Override
+    protected void onHit(HitResult result)
+    {
+        super.onHit(result);
+        if (level() instanceof ServerLevel level && !isRemoved())
+        {
+            final BlastType type = level.registryAccess().registryOrThrow(FalloutMcRegistries.BLAST_TYPE).get(blast);
+            if (type != null)
+            {
+                NuclearBlast.detonate(level, position(), type, this, getOwner());
+            }
+            discard();
+        }
+    }
+
+    @Override
+    protected void addAdditionalSaveData(CompoundTag tag)
+    {
+        super.addAdditionalSaveData(tag);
+        tag.putString("blast", blast.location().toString());
+    }
+
+    @Override
+    protected void readAdditionalSaveData(CompoundTag tag)
+    {
+        super.readAdditionalSaveData(tag);
+        final ResourceLocation id = ResourceLocation.tryParse(tag.getString("blast"));
+        if (id != null)
+        {
+            blast = ResourceKey.create(FalloutMcRegistries.BLAST_TYPE, id);
+        }
+    }
+}
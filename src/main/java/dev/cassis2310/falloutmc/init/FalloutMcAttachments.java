@@ -0,0 +1,32 @@
+package dev.cassis2310.falloutmc.init;
+
+import dev.cassis2310.falloutmc.FalloutMc;
+import dev.cassis2310.falloutmc.radiation.RadiationChunk;
+import dev.cassis2310.falloutmc.radiation.RadiationDose;
+import net.neoforged.bus.api.IEventBus;
+import net.neoforged.neoforge.attachment.AttachmentType;
+import net.neoforged.neoforge.registries.DeferredRegister;
+import net.neoforged.neoforge.registries.NeoForgeRegistries;
+
+import java.util.function.Supplier;
+
+public class FalloutMcAttachments
+{
+    public static final DeferredRegister<AttachmentType<?>> ATTACHMENT_TYPES = DeferredRegister.create(
+            NeoForgeRegistries.Keys.ATTACHMENT_TYPES,
+            FalloutMc.MOD_ID
+    );
+
+    // Register all data attachments here.
+
+    public static final Supplier<AttachmentType<RadiationChunk>> RADIATION = ATTACHMENT_TYPES.register("radiation",
+            () -> AttachmentType.builder(RadiationChunk::new).serialize(RadiationChunk.SERIALIZER).build());
+
+    public static final Supplier<AttachmentType<RadiationDose>> RADIATION_DOSE = ATTACHMENT_TYPES.register("radiation_dose",
+            () -> AttachmentType.builder(RadiationDose::new).serialize(RadiationDose.SERIALIZER).build());
+
+    public static void register(IEventBus bus)
+    {
+        ATTACHMENT_TYPES.register(bus);
+    }
+}
@@ -1,9 +1,11 @@
 package dev.cassis2310.falloutmc.init;
 
 import dev.cassis2310.falloutmc.FalloutMc;
+import dev.cassis2310.falloutmc.radiation.RadiationEffect;
 import net.minecraft.world.effect.MobEffect;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.neoforged.bus.api.IEventBus;
+import net.neoforged.neoforge.registries.DeferredHolder;
 import net.neoforged.neoforge.registries.DeferredRegister;
 
 public class FalloutMcEffects
@@ -15,6 +17,8 @@ public class FalloutMcEffects
 
     // Register all effects here.
 
+    public static final DeferredHolder<MobEffect, MobEffect> RADIATION = EFFECTS.register("radiation", RadiationEffect::new);
+
     public static void register(IEventBus bus)
     {
         EFFECTS.register(bus);
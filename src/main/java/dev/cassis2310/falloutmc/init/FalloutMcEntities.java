@@ -1,9 +1,12 @@
 package dev.cassis2310.falloutmc.init;
 
 import dev.cassis2310.falloutmc.FalloutMc;
+import dev.cassis2310.falloutmc.entity.MiniNuke;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.MobCategory;
 import net.neoforged.bus.api.IEventBus;
+import net.neoforged.neoforge.registries.DeferredHolder;
 import net.neoforged.neoforge.registries.DeferredRegister;
 
 public class FalloutMcEntities
@@ -14,6 +17,12 @@ public class FalloutMcEntities
     );
 
     // Register all entities here.
+    public static final DeferredHolder<EntityType<?>, EntityType<MiniNuke>> MINI_NUKE = ENTITY_TYPES.register("mini_nuke",
+            () -> EntityType.Builder.<MiniNuke>of(MiniNuke::new, MobCategory.MISC)
+                    .sized(0.5f, 0.5f)
+                    .clientTrackingRange(8)
+                    .updateInterval(10)
+                    .build("mini_nuke"));
 
     public static void register(IEventBus bus)
     {
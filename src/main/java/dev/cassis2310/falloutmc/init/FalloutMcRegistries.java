@@ -0,0 +1,24 @@
+package dev.cassis2310.falloutmc.init;
+
+import dev.cassis2310.falloutmc.blast.BlastType;
+import dev.cassis2310.falloutmc.util.Helpers;
+import net.minecraft.core.Registry;
+import net.minecraft.resources.ResourceKey;
+import net.neoforged.bus.api.IEventBus;
+import net.neoforged.neoforge.registries.DataPackRegistryEvent;
+
+public class FalloutMcRegistries
+{
+    public static final ResourceKey<Registry<BlastType>> BLAST_TYPE = ResourceKey.createRegistryKey(Helpers.identifier("blast_type"));
+
+    public static void register(IEventBus bus)
+    {
+        bus.addListener(FalloutMcRegistries::registerDataPackRegistries);
+    }
+
+    private static void registerDataPackRegistries(DataPackRegistryEvent.NewRegistry event)
+    {
+        // Blasts are only computed on the server, so the registry is not synced
+        event.dataPackRegistry(BLAST_TYPE, BlastType.CODEC);
+    }
+}
@@ -4,6 +4,7 @@ import dev.cassis2310.falloutmc.FalloutMc;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.sounds.SoundEvent;
 import net.neoforged.bus.api.IEventBus;
+import net.neoforged.neoforge.registries.DeferredHolder;
 import net.neoforged.neoforge.registries.DeferredRegister;
 
 public class FalloutMcSounds
@@ -14,6 +15,7 @@ public class FalloutMcSounds
     );
 
     // Register all sounds here.
+    public static final DeferredHolder<SoundEvent, SoundEvent> GEIGER_CLICK = SOUND_EVENTS.register("geiger_counter.click", SoundEvent::createVariableRangeEvent);
 
     public static void register(IEventBus bus)
     {
@@ -0,0 +1,26 @@
+package dev.cassis2310.falloutmc.network;
+
+import dev.cassis2310.falloutmc.client.ClientRadiationCache;
+import net.neoforged.bus.api.IEventBus;
+import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
+import net.neoforged.neoforge.network.registration.PayloadRegistrar;
+
+/**
+ * Registers all custom packets.
+ */
+public final class PacketHandler
+{
+    private static final String VERSION = "1";
+
+    public static void init(IEventBus bus)
+    {
+        bus.addListener(PacketHandler::registerPayloads);
+    }
+
+    private static void registerPayloads(RegisterPayloadHandlersEvent event)
+    {
+        final PayloadRegistrar registrar = event.registrar(VERSION);
+
+        registrar.playToClient(RadiationSyncPacket.TYPE, RadiationSyncPacket.STREAM_CODEC, (packet, context) -> ClientRadiationCache.apply(packet));
+    }
+}
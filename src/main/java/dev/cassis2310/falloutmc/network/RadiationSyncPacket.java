@@ -0,0 +1,56 @@
+package dev.cassis2310.falloutmc.network;
+
+import dev.cassis2310.falloutmc.util.Helpers;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+
+/**
+ * Sends changes to the radiation field around a player. The field is quantized to cells of 4x4x4 blocks, each holding the highest level in the cell,
+ * so each section is 64 cells. Only cells which differ from what the player was last sent are included:
+ * <ul>
+ *     <li>{@code sections} holds the packed section positions.</li>
+ *     <li>{@code masks} holds, for each section, a bit per cell which changed.</li>
+ *     <li>{@code values} holds the new levels of the changed cells, in order, two per byte.</li>
+ * </ul>
+ */
+public record RadiationSyncPacket(long[] sections, long[] masks, byte[] values) implements CustomPacketPayload
+{
+    public static final CustomPacketPayload.Type<RadiationSyncPacket> TYPE = new CustomPacketPayload.Type<>(Helpers.identifier("radiation_sync"));
+
+    public static final StreamCodec<FriendlyByteBuf, RadiationSyncPacket> STREAM_CODEC = StreamCodec.of(
+        (buffer, packet) -> {
+            buffer.writeVarInt(packet.sections.length);
+            for (int i = 0; i < packet.sections.length; i++)
+            {
+                buffer.writeLong(packet.sections[i]);
+                buffer.writeLong(packet.masks[i]);
+            }
+            buffer.writeByteArray(packet.values);
+        },
+        buffer -> {
+            final int count = buffer.readVarInt();
+            final long[] sections = new long[count], masks = new long[count];
+            for (int i = 0; i < count; i++)
+            {
+                sections[i] = buffer.readLong();
+                masks[i] = buffer.readLong();
+            }
+            return new RadiationSyncPacket(sections, masks, buffer.readByteArray());
+        }
+    );
+
+    /**
+     * @return The level of the {@code index}-th changed cell, across all sections in this packet.
+     */
+    public int value(int index)
+    {
+        return (values[index >> 1] >> ((index & 1) << 2)) & 15;
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type()
+    {
+        return TYPE;
+    }
+}
@@ -0,0 +1,175 @@
+package dev.cassis2310.falloutmc.radiation;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.LevelHeightAccessor;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.neoforged.neoforge.attachment.IAttachmentHolder;
+import net.neoforged.neoforge.attachment.IAttachmentSerializer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The radiation data of a single chunk, stored as a chunk data attachment.
+ * <ul>
+ *     <li>The field is one {@link DataLayer} (a packed nibble array, as used for light) per chunk section, holding a level from 0 to 15 for each block.
+ *     Sections with no radiation have no layer. The field is derived from the sources, so it is not saved, and is rebuilt when the chunk loads.</li>
+ *     <li>The sources are the positions which emit radiation, and their strength. These are saved with the chunk.</li>
+ * </ul>
+ * Each section also has a version, which is incremented whenever its field changes, so observers (i.e. sync) can tell which sections changed.
+ * @see RadiationField
+ */
+public final class RadiationChunk
+{
+    public static final IAttachmentSerializer<CompoundTag, RadiationChunk> SERIALIZER = new IAttachmentSerializer<>()
+    {
+        @Override
+        public RadiationChunk read(IAttachmentHolder holder, CompoundTag tag, HolderLookup.Provider provider)
+        {
+            final RadiationChunk chunk = new RadiationChunk(holder);
+            final long[] positions = tag.getLongArray("positions");
+            final byte[] strengths = tag.getByteArray("strengths");
+            for (int i = 0; i < Math.min(positions.length, strengths.length); i++)
+            {
+                chunk.sources.put(positions[i], strengths[i]);
+            }
+            return chunk;
+        }
+
+        @Nullable
+        @Override
+        public CompoundTag write(RadiationChunk attachment, HolderLookup.Provider provider)
+        {
+            if (attachment.sources.isEmpty())
+            {
+                return null;
+            }
+            final long[] positions = new long[attachment.sources.size()];
+            final byte[] strengths = new byte[positions.length];
+            int i = 0;
+            for (Long2ByteMap.Entry entry : attachment.sources.long2ByteEntrySet())
+            {
+                positions[i] = entry.getLongKey();
+                strengths[i++] = entry.getByteValue();
+            }
+            final CompoundTag tag = new CompoundTag();
+            tag.putLongArray("positions", positions);
+            tag.putByteArray("strengths", strengths);
+            return tag;
+        }
+    };
+
+    private final int minSection;
+    private final @Nullable DataLayer[] layers;
+    private final int[] versions;
+    private final Long2ByteMap sources = new Long2ByteOpenHashMap();
+
+    public RadiationChunk(IAttachmentHolder holder)
+    {
+        if (!(holder instanceof LevelHeightAccessor height))
+        {
+            throw new IllegalArgumentException("Radiation can only be attached to chunks, not " + holder);
+        }
+        this.minSection = height.getMinSection();
+        this.layers = new DataLayer[height.getSectionsCount()];
+        this.versions = new int[layers.length];
+    }
+
+    /**
+     * @return The radiation level at the given block position, from 0 to 15.
+     */
+    public int get(int x, int y, int z)
+    {
+        final int index = (y >> 4) - minSection;
+        if (index < 0 || index >= layers.length)
+        {
+            return 0;
+        }
+        final DataLayer layer = layers[index];
+        return layer == null ? 0 : layer.get(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Sets the radiation level at the given block position. Positions outside the build height are ignored.
+     */
+    void set(int x, int y, int z, int value)
+    {
+        final int index = (y >> 4) - minSection;
+        if (index < 0 || index >= layers.length)
+        {
+            return;
+        }
+        DataLayer layer = layers[index];
+        if (layer == null)
+        {
+            if (value == 0)
+            {
+                return;
+            }
+            layer = layers[index] = new DataLayer();
+        }
+        layer.set(x & 15, y & 15, z & 15, value);
+        versions[index]++;
+    }
+
+    /**
+     * Clears the field of this chunk, leaving the sources.
+     */
+    void clearField()
+    {
+        for (int index = 0; index < layers.length; index++)
+        {
+            if (layers[index] != null)
+            {
+                layers[index] = null;
+                versions[index]++;
+            }
+        }
+    }
+
+    /**
+     * @param index The section index, i.e. from {@link LevelHeightAccessor#getSectionIndex(int)}.
+     * @return      The field of that section, or {@code null} if the section has no radiation. This must not be modified.
+     */
+    @Nullable
+    public DataLayer getLayer(int index)
+    {
+        return index >= 0 && index < layers.length ? layers[index] : null;
+    }
+
+    /**
+     * @param index The section index, i.e. from {@link LevelHeightAccessor#getSectionIndex(int)}.
+     * @return      A counter which changes whenever the field of that section changes.
+     */
+    public int getVersion(int index)
+    {
+        return index >= 0 && index < versions.length ? versions[index] : 0;
+    }
+
+    /**
+     * @return The radiation sources in this chunk, as a map from packed block position to strength. This must not be modified.
+     */
+    public Long2ByteMap getSources()
+    {
+        return sources;
+    }
+
+    /**
+     * @return The strength of the source at the packed block position, or 0 if there is none.
+     */
+    int getSource(long pos)
+    {
+        return sources.get(pos);
+    }
+
+    void putSource(long pos, int strength)
+    {
+        sources.put(pos, (byte) strength);
+    }
+
+    void removeSource(long pos)
+    {
+        sources.remove(pos);
+    }
+}
@@ -0,0 +1,61 @@
+package dev.cassis2310.falloutmc.radiation;
+
+import dev.cassis2310.falloutmc.init.FalloutMcAttachments;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.world.entity.player.Player;
+import net.neoforged.neoforge.attachment.IAttachmentHolder;
+import net.neoforged.neoforge.attachment.IAttachmentSerializer;
+
+/**
+ * The total radiation dose a player has absorbed, stored as a player data attachment. It is a mutable counter, so accumulating dose does not allocate.
+ * The dose is lost on death.
+ * @see RadiationExposure
+ */
+public final class RadiationDose
+{
+    public static final IAttachmentSerializer<IntTag, RadiationDose> SERIALIZER = new IAttachmentSerializer<>()
+    {
+        @Override
+        public RadiationDose read(IAttachmentHolder holder, IntTag tag, HolderLookup.Provider provider)
+        {
+            final RadiationDose dose = new RadiationDose();
+            dose.value = Math.max(0, tag.getAsInt());
+            return dose;
+        }
+
+        @Override
+        public IntTag write(RadiationDose attachment, HolderLookup.Provider provider)
+        {
+            return IntTag.valueOf(attachment.value);
+        }
+    };
+
+    /**
+     * @return The dose of {@code player}.
+     */
+    public static int get(Player player)
+    {
+        return player.getData(FalloutMcAttachments.RADIATION_DOSE).value;
+    }
+
+    /**
+     * Reduces the dose of {@code player}, i.e. when treated. The radiation effect is updated on the next exposure pass.
+     *
+     * @param player The player.
+     * @param amount The amount to reduce the dose by.
+     */
+    public static void reduce(Player player, int amount)
+    {
+        final RadiationDose dose = player.getData(FalloutMcAttachments.RADIATION_DOSE);
+        dose.value = Math.max(0, dose.value - amount);
+    }
+
+    int value = 0;
+    int appliedAmplifier = -1; // The amplifier of the effect last applied for this dose, or -1 for none. Not saved, as effects are saved with the player.
+
+    public int value()
+    {
+        return value;
+    }
+}
@@ -0,0 +1,36 @@
+package dev.cassis2310.falloutmc.radiation;
+
+import net.minecraft.world.effect.MobEffect;
+import net.minecraft.world.effect.MobEffectCategory;
+import net.minecraft.world.entity.LivingEntity;
+
+/**
+ * Radiation sickness. The effect is applied with an infinite duration, and its amplifier follows the entity's {@link RadiationDose},
+ * so it is only re-applied when the dose crosses a threshold, rather than refreshed every tick.
+ * Damages the entity periodically, more often at higher amplifiers.
+ */
+public class RadiationEffect extends MobEffect
+{
+    public RadiationEffect()
+    {
+        super(MobEffectCategory.HARMFUL, 0x5BC236);
+    }
+
+    @Override
+    public boolean shouldApplyEffectTickThisTick(int duration, int amplifier)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean applyEffectTick(LivingEntity entity, int amplifier)
+    {
+        // The duration is infinite, so the interval is based on the entity's own tick count instead
+        final int interval = Math.max(10, 80 >> amplifier);
+        if (entity.tickCount % interval == 0)
+        {
+            entity.hurt(entity.damageSources().magic(), 1.0f);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+package dev.cassis2310.falloutmc.radiation;
+
+import dev.cassis2310.falloutmc.init.FalloutMcAttachments;
+import dev.cassis2310.falloutmc.init.FalloutMcEffects;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.level.chunk.DataLayer;
+
+/**
+ * Accumulates radiation dose for all players in a single pass every {@link #INTERVAL} ticks, rather than each player reading the field every tick.
+ * <p>
+ * Players are processed level by level, and the field of each chunk section is looked up once per pass, no matter how many players are in it.
+ * Each player's dose is a counter in a {@link RadiationDose} attachment, and the {@link RadiationEffect} is only re-applied when the dose crosses
+ * into a different amplifier, so there is no per tick effect instance churn.
+ */
+public final class RadiationExposure
+{
+    /**
+     * The number of ticks between exposure passes.
+     */
+    public static final int INTERVAL = 20;
+
+    /**
+     * The dose required for each amplifier of the radiation effect. The effect is first applied at this dose.
+     */
+    public static final int DOSE_PER_AMPLIFIER = 1000;
+
+    /**
+     * The maximum amplifier of the radiation effect.
+     */
+    public static final int MAX_AMPLIFIER = 4;
+
+    // Reused between passes, and only ever accessed from the server thread. A section with no radiation maps to EMPTY_SECTION.
+    private static final Long2ObjectMap<DataLayer> SECTIONS = new Long2ObjectOpenHashMap<>();
+    private static final DataLayer EMPTY_SECTION = new DataLayer();
+
+    /**
+     * Called at the end of each server tick.
+     */
+    public static void onServerTick(MinecraftServer server)
+    {
+        if (server.getTickCount() % INTERVAL != 0)
+        {
+            return;
+        }
+        for (ServerLevel level : server.getAllLevels())
+        {
+            if (!level.players().isEmpty())
+            {
+                expose(level);
+            }
+        }
+    }
+
+    private static void expose(ServerLevel level)
+    {
+        SECTIONS.clear();
+        for (ServerPlayer player : level.players())
+        {
+            if (player.isSpectator() || player.isCreative())
+            {
+                continue;
+            }
+
+            final BlockPos pos = player.blockPosition();
+            final DataLayer layer = SECTIONS.computeIfAbsent(SectionPos.asLong(pos), key -> section(level, pos));
+            final int radiation = layer == EMPTY_SECTION ? 0 : layer.get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+
+            final RadiationDose dose = player.getData(FalloutMcAttachments.RADIATION_DOSE);
+            if (radiation > 0)
+            {
+                // The dose rate is the radiation level per tick, so a full pass is worth the level times the interval
+                dose.value = (int) Math.min(Integer.MAX_VALUE, (long) dose.value + (long) radiation * INTERVAL);
+            }
+            updateEffect(player, dose);
+        }
+        SECTIONS.clear();
+    }
+
+    private static DataLayer section(ServerLevel level, BlockPos pos)
+    {
+        final RadiationChunk chunk = RadiationField.getChunk(level, SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ()));
+        final DataLayer layer = chunk == null ? null : chunk.getLayer(level.getSectionIndex(pos.getY()));
+        return layer == null ? EMPTY_SECTION : layer;
+    }
+
+    private static void updateEffect(ServerPlayer player, RadiationDose dose)
+    {
+        final int amplifier = Math.min(MAX_AMPLIFIER, dose.value / DOSE_PER_AMPLIFIER - 1);
+        if (amplifier == dose.appliedAmplifier && (amplifier < 0 || player.hasEffect(FalloutMcEffects.RADIATION)))
+        {
+            return;
+        }
+        dose.appliedAmplifier = amplifier;
+        if (amplifier < 0)
+        {
+            player.removeEffect(FalloutMcEffects.RADIATION);
+        }
+        else
+        {
+            player.removeEffect(FalloutMcEffects.RADIATION);
+            player.addEffect(new MobEffectInstance(FalloutMcEffects.RADIATION, MobEffectInstance.INFINITE_DURATION, amplifier, false, false, true));
+        }
+    }
+}
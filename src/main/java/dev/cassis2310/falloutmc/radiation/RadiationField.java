@@ -0,0 +1,465 @@
+package dev.cassis2310.falloutmc.radiation;
+
+import dev.cassis2310.falloutmc.init.FalloutMcAttachments;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.neoforged.neoforge.attachment.AttachmentType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * The radiation field of a server level. Radiation spreads from sources (i.e. craters, or waste barrels) the same way block light spreads from
+ * light sources: each source has a strength from 1 to 15, and the level drops by one per block away from it, with the highest contribution winning.
+ * <p>
+ * The field is stored per chunk, in a {@link RadiationChunk}, so {@link #getRadiation} is a constant time lookup which mob, player and block logic can
+ * all share, rather than each scanning the area around them for sources. The field is only recomputed when a source is added or removed,
+ * or a chunk is loaded, by an incremental breadth first search from the changed positions, again like the light engine:
+ * <ul>
+ *     <li>Removals run first, clearing the levels which could only have come from the removed source, and queueing the surrounding levels which
+ *     were not cleared (including any other sources uncovered) to be spread again.</li>
+ *     <li>Increases then spread outward, only ever raising levels.</li>
+ * </ul>
+ * Updates are queued, and processed at the end of each level tick, up to a fixed budget per tick. Radiation does not spread into unloaded chunks.
+ * When a chunk loads, its own sources, and the levels on the faces of its loaded neighbours, are spread into it.
+ * <p>
+ * Chunks only hold a {@link RadiationChunk} once radiation reaches them, either from a source added in the chunk, or from the field spreading into it.
+ * Reading the field never creates one, and a chunk without one is treated as having no radiation.
+ * <p>
+ * All methods must be called on the server thread.
+ */
+public final class RadiationField
+{
+    public static final int MAX_LEVEL = 15;
+
+    /**
+     * The maximum number of positions visited by propagation per level tick. Anything more is continued on the next tick.
+     */
+    private static final int UPDATES_PER_TICK = 1 << 16;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Map<Level, RadiationField> FIELDS = new IdentityHashMap<>();
+
+    /**
+     * @param level The level.
+     * @param pos   The position.
+     * @return      The radiation level at {@code pos}, from 0 to {@link #MAX_LEVEL}. This is always 0 in unloaded chunks, and on the client.
+     */
+    public static int getRadiation(Level level, BlockPos pos)
+    {
+        final RadiationChunk chunk = getChunk(level, SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ()));
+        return chunk == null ? 0 : chunk.get(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Adds, or replaces, a radiation source. The field is updated at the end of the tick.
+     *
+     * @param level    The level.
+     * @param pos      The position of the source.
+     * @param strength The strength of the source, which is the radiation level at its position. Clamped to [0, {@link #MAX_LEVEL}], where 0 removes the source.
+     */
+    public static void addSource(ServerLevel level, BlockPos pos, int strength)
+    {
+        strength = Mth.clamp(strength, 0, MAX_LEVEL);
+        if (strength == 0)
+        {
+            removeSource(level, pos);
+            return;
+        }
+
+        final LevelChunk chunk = level.getChunkAt(pos);
+        final RadiationChunk radiation = chunk.getData(FalloutMcAttachments.RADIATION);
+        final long packed = pos.asLong();
+        final int previous = radiation.getSource(packed);
+        if (previous == strength)
+        {
+            return;
+        }
+
+        final RadiationField field = get(level);
+        if (previous > strength)
+        {
+            // Weakening a source has to clear what the stronger source spread
+            field.enqueueDecrease(packed, radiation.get(pos.getX(), pos.getY(), pos.getZ()));
+            field.set(radiation, pos.getX(), pos.getY(), pos.getZ(), 0);
+        }
+        radiation.putSource(packed, strength);
+        chunk.setUnsaved(true);
+        field.enqueueSource(packed, strength);
+    }
+
+    /**
+     * Removes a radiation source, if one exists. The field is updated at the end of the tick.
+     *
+     * @param level The level.
+     * @param pos   The position of the source.
+     */
+    public static void removeSource(ServerLevel level, BlockPos pos)
+    {
+        final LevelChunk chunk = level.getChunkAt(pos);
+        final RadiationChunk radiation = getExistingData(chunk);
+        final long packed = pos.asLong();
+        if (radiation == null || radiation.getSource(packed) == 0)
+        {
+            return;
+        }
+
+        radiation.removeSource(packed);
+        chunk.setUnsaved(true);
+        final RadiationField field = get(level);
+        field.enqueueDecrease(packed, radiation.get(pos.getX(), pos.getY(), pos.getZ()));
+        field.set(radiation, pos.getX(), pos.getY(), pos.getZ(), 0);
+    }
+
+    /**
+     * @param level The level.
+     * @param pos   The position.
+     * @return      The strength of the source at {@code pos}, or 0 if there is none.
+     */
+    public static int getSource(ServerLevel level, BlockPos pos)
+    {
+        final RadiationChunk chunk = getChunk(level, SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ()));
+        return chunk == null ? 0 : chunk.getSource(pos.asLong());
+    }
+
+    /**
+     * @param level The level.
+     * @param x     The chunk x coordinate.
+     * @param z     The chunk z coordinate.
+     * @return      The radiation data of the chunk, or {@code null} if the chunk is not loaded, or radiation has never reached it.
+     */
+    @Nullable
+    public static RadiationChunk getChunk(Level level, int x, int z)
+    {
+        final LevelChunk chunk = level.getChunkSource().getChunkNow(x, z);
+        return chunk == null ? null : getExistingData(chunk);
+    }
+
+    /**
+     * Called when a chunk is loaded, to spread radiation into it.
+     */
+    public static void onChunkLoad(Level level, LevelChunk chunk)
+    {
+        if (level instanceof ServerLevel)
+        {
+            get(level).pendingChunks.add(chunk.getPos().toLong());
+        }
+    }
+
+    /**
+     * Called at the end of each level tick, to process queued updates.
+     */
+    public static void onLevelTick(Level level)
+    {
+        final RadiationField field = FIELDS.get(level);
+        if (field != null)
+        {
+            field.update();
+        }
+    }
+
+    /**
+     * Passes every section whose field changed since the last call to {@code action}, and forgets them.
+     *
+     * @param level  The level.
+     * @param action Called with each changed section, as a packed {@link SectionPos}.
+     */
+    public static void drainChangedSections(Level level, LongConsumer action)
+    {
+        final RadiationField field = FIELDS.get(level);
+        if (field != null && !field.changedSections.isEmpty())
+        {
+            field.changedSections.forEach(action);
+            field.changedSections.clear();
+        }
+    }
+
+    /**
+     * Called when a level is unloaded.
+     */
+    public static void onUnload(Level level)
+    {
+        FIELDS.remove(level);
+    }
+
+    private static RadiationField get(Level level)
+    {
+        return FIELDS.computeIfAbsent(level, key -> new RadiationField((ServerLevel) key));
+    }
+
+    /**
+     * @return The radiation data of {@code chunk}, or {@code null} if it has none, without attaching it, as {@link LevelChunk#getData} would.
+     */
+    @Nullable
+    private static RadiationChunk getExistingData(LevelChunk chunk)
+    {
+        final AttachmentType<RadiationChunk> type = FalloutMcAttachments.RADIATION.get();
+        return chunk.hasData(type) ? chunk.getData(type) : null;
+    }
+
+    private final ServerLevel level;
+    private final LongLinkedOpenHashSet pendingChunks = new LongLinkedOpenHashSet();
+    private final LongArrayFIFOQueue decreasePositions = new LongArrayFIFOQueue();
+    private final IntArrayFIFOQueue decreaseLevels = new IntArrayFIFOQueue();
+    private final LongArrayFIFOQueue increasePositions = new LongArrayFIFOQueue();
+    private final IntArrayFIFOQueue increaseLevels = new IntArrayFIFOQueue();
+    private final LongOpenHashSet changedSections = new LongOpenHashSet();
+
+    // A single entry cache of the last chunk looked up during propagation, as neighbouring positions are almost always in the same chunk
+    private long cachedChunkPos = Long.MAX_VALUE;
+    private @Nullable LevelChunk cachedLevelChunk = null;
+    private @Nullable RadiationChunk cachedChunk = null;
+
+    private RadiationField(ServerLevel level)
+    {
+        this.level = level;
+    }
+
+    private void update()
+    {
+        // Chunks may have been loaded or unloaded since the last update
+        clearCache();
+
+        int budget = UPDATES_PER_TICK;
+        while (!pendingChunks.isEmpty() && budget > 0)
+        {
+            final long chunkPos = pendingChunks.removeFirstLong();
+            budget -= seedChunk(ChunkPos.getX(chunkPos), ChunkPos.getZ(chunkPos));
+        }
+        while (!decreasePositions.isEmpty() && budget-- > 0)
+        {
+            propagateDecrease(decreasePositions.dequeueLong(), decreaseLevels.dequeueInt());
+        }
+        while (decreasePositions.isEmpty() && !increasePositions.isEmpty() && budget-- > 0)
+        {
+            propagateIncrease(increasePositions.dequeueLong(), increaseLevels.dequeueInt());
+        }
+        clearCache();
+    }
+
+    /**
+     * Rebuilds the field of a newly loaded chunk, from its own sources and the levels on the faces of its neighbours.
+     *
+     * @return The number of positions queued.
+     */
+    private int seedChunk(int chunkX, int chunkZ)
+    {
+        final LevelChunk levelChunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+        if (levelChunk == null)
+        {
+            return 1;
+        }
+
+        int queued = 1;
+        final RadiationChunk chunk = getExistingData(levelChunk);
+        if (chunk != null)
+        {
+            chunk.clearField();
+            for (int index = 0; index < level.getSectionsCount(); index++)
+            {
+                changedSections.add(SectionPos.asLong(chunkX, level.getSectionYFromSectionIndex(index), chunkZ));
+            }
+            for (Long2ByteMap.Entry source : chunk.getSources().long2ByteEntrySet())
+            {
+                enqueueSource(source.getLongKey(), source.getByteValue());
+                queued++;
+            }
+        }
+
+        // Each neighbour's face cells are re-spread, which is a no-op except toward this chunk, where the levels are now missing
+        for (Direction direction : Direction.Plane.HORIZONTAL)
+        {
+            final int neighborX = chunkX + direction.getStepX(), neighborZ = chunkZ + direction.getStepZ();
+            final RadiationChunk neighbor = getChunk(level, neighborX, neighborZ);
+            if (neighbor == null)
+            {
+                continue;
+            }
+            final int minBlockX = neighborX << 4, minBlockZ = neighborZ << 4;
+            // The column of the neighbour facing this chunk
+            final int faceX = direction.getStepX() == 0 ? -1 : (direction.getStepX() > 0 ? 0 : 15);
+            final int faceZ = direction.getStepZ() == 0 ? -1 : (direction.getStepZ() > 0 ? 0 : 15);
+            for (int index = 0; index < level.getSectionsCount(); index++)
+            {
+                final DataLayer layer = neighbor.getLayer(index);
+                if (layer == null)
+                {
+                    continue;
+                }
+                final int minBlockY = level.getSectionYFromSectionIndex(index) << 4;
+                for (int y = 0; y < 16; y++)
+                {
+                    for (int i = 0; i < 16; i++)
+                    {
+                        final int x = faceX == -1 ? i : faceX, z = faceZ == -1 ? i : faceZ;
+                        final int value = layer.get(x, y, z);
+                        if (value > 1)
+                        {
+                            enqueueIncrease(BlockPos.asLong(minBlockX + x, minBlockY + y, minBlockZ + z), value);
+                            queued++;
+                        }
+                    }
+                }
+            }
+        }
+        return queued;
+    }
+
+    private void enqueueSource(long pos, int strength)
+    {
+        final int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+        final RadiationChunk chunk = getChunk(level, SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(z));
+        if (chunk != null && chunk.get(x, y, z) < strength)
+        {
+            set(chunk, x, y, z, strength);
+        }
+        enqueueIncrease(pos, strength);
+    }
+
+    private void enqueueIncrease(long pos, int value)
+    {
+        increasePositions.enqueue(pos);
+        increaseLevels.enqueue(value);
+    }
+
+    private void enqueueDecrease(long pos, int value)
+    {
+        if (value > 0)
+        {
+            decreasePositions.enqueue(pos);
+            decreaseLevels.enqueue(value);
+        }
+    }
+
+    private void propagateIncrease(long pos, int value)
+    {
+        final int next = value - 1;
+        if (next <= 0)
+        {
+            return;
+        }
+        final int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+        final RadiationChunk origin = chunkAt(x, z);
+        if (origin == null || origin.get(x, y, z) != value)
+        {
+            // Stale, as the level here has changed since this was queued, i.e. the source was removed in the same tick it was added
+            return;
+        }
+        for (Direction direction : DIRECTIONS)
+        {
+            final int nx = x + direction.getStepX(), ny = y + direction.getStepY(), nz = z + direction.getStepZ();
+            if (level.isOutsideBuildHeight(ny))
+            {
+                continue;
+            }
+            // Spreading into a chunk with no radiation yet always raises the level there, so it is only attached to when it is written to
+            final RadiationChunk chunk = chunkAtForWrite(nx, nz);
+            if (chunk != null && chunk.get(nx, ny, nz) < next)
+            {
+                set(chunk, nx, ny, nz, next);
+                enqueueIncrease(BlockPos.asLong(nx, ny, nz), next);
+            }
+        }
+    }
+
+    private void propagateDecrease(long pos, int value)
+    {
+        final int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+        for (Direction direction : DIRECTIONS)
+        {
+            final int nx = x + direction.getStepX(), ny = y + direction.getStepY(), nz = z + direction.getStepZ();
+            if (level.isOutsideBuildHeight(ny))
+            {
+                continue;
+            }
+            final RadiationChunk chunk = chunkAt(nx, nz);
+            if (chunk == null)
+            {
+                continue;
+            }
+            final int neighbor = chunk.get(nx, ny, nz);
+            if (neighbor == 0)
+            {
+                continue;
+            }
+            final long neighborPos = BlockPos.asLong(nx, ny, nz);
+            if (neighbor < value)
+            {
+                // This level may have come from the removed source, so clear it, and continue clearing outward
+                set(chunk, nx, ny, nz, 0);
+                enqueueDecrease(neighborPos, neighbor);
+
+                final int source = chunk.getSource(neighborPos);
+                if (source > 0)
+                {
+                    enqueueSource(neighborPos, source);
+                }
+            }
+            else
+            {
+                // This level has another origin, so spread it back into the cleared area
+                enqueueIncrease(neighborPos, neighbor);
+            }
+        }
+    }
+
+    private void set(RadiationChunk chunk, int x, int y, int z, int value)
+    {
+        chunk.set(x, y, z, value);
+        changedSections.add(SectionPos.asLong(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(y), SectionPos.blockToSectionCoord(z)));
+    }
+
+    /**
+     * @return The radiation data of the chunk containing the given block, or {@code null} if it is not loaded, or has none.
+     */
+    @Nullable
+    private RadiationChunk chunkAt(int blockX, int blockZ)
+    {
+        final int chunkX = SectionPos.blockToSectionCoord(blockX), chunkZ = SectionPos.blockToSectionCoord(blockZ);
+        final long chunkPos = ChunkPos.asLong(chunkX, chunkZ);
+        if (chunkPos != cachedChunkPos)
+        {
+            cachedLevelChunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+            cachedChunk = cachedLevelChunk == null ? null : getExistingData(cachedLevelChunk);
+            cachedChunkPos = chunkPos;
+        }
+        return cachedChunk;
+    }
+
+    /**
+     * @return The radiation data of the chunk containing the given block, attaching it if the chunk has none, or {@code null} if it is not loaded.
+     */
+    @Nullable
+    private RadiationChunk chunkAtForWrite(int blockX, int blockZ)
+    {
+        final RadiationChunk chunk = chunkAt(blockX, blockZ);
+        if (chunk == null && cachedLevelChunk != null)
+        {
+            // Only sources are saved, so this does not need to mark the chunk unsaved
+            cachedChunk = cachedLevelChunk.getData(FalloutMcAttachments.RADIATION);
+            return cachedChunk;
+        }
+        return chunk;
+    }
+
+    private void clearCache()
+    {
+        cachedChunkPos = Long.MAX_VALUE;
+        cachedLevelChunk = null;
+        cachedChunk = null;
+    }
+}
@@ -0,0 +1,263 @@
+package dev.cassis2310.falloutmc.radiation;
+
+import dev.cassis2310.falloutmc.network.RadiationSyncPacket;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.neoforged.neoforge.network.PacketDistributor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends each player the radiation field around them, for Geiger counters and the HUD.
+ * <p>
+ * Rather than sending the field every tick, only sections which are within a player's view distance, and whose field changed, are sent:
+ * <ul>
+ *     <li>The field is quantized to cells of 4x4x4 blocks, holding the highest level in the cell, so a section is 64 nibbles rather than 4096.</li>
+ *     <li>What was last sent to each player is remembered, and only the cells which differ from it are sent.</li>
+ *     <li>Each player is sent at most one packet every {@link #INTERVAL} ticks, of at most {@link #MAX_SECTIONS} sections. Anything more waits for the next packet.</li>
+ * </ul>
+ * All methods must be called on the server thread.
+ * @see RadiationSyncPacket
+ */
+public final class RadiationSync
+{
+    /**
+     * The minimum number of ticks between packets sent to a single player.
+     */
+    public static final int INTERVAL = 10;
+
+    /**
+     * The maximum number of sections in a single packet.
+     */
+    public static final int MAX_SECTIONS = 64;
+
+    /**
+     * The number of cells in a section, along each axis, and in total.
+     */
+    public static final int CELLS = 4, CELLS_PER_SECTION = CELLS * CELLS * CELLS;
+
+    private static final Map<UUID, State> STATES = new HashMap<>();
+
+    // Reused between packets, and only ever accessed from the server thread
+    private static final byte[] CELL_BUFFER = new byte[CELLS_PER_SECTION];
+    private static final LongArrayList SECTION_BUFFER = new LongArrayList();
+    private static final LongArrayList MASK_BUFFER = new LongArrayList();
+    private static final ByteArrayList VALUE_BUFFER = new ByteArrayList();
+
+    /**
+     * @return The index of the cell containing the given block position, relative to its section.
+     */
+    public static int cellIndex(int x, int y, int z)
+    {
+        return ((y >> 2) & 3) << 4 | ((z >> 2) & 3) << 2 | ((x >> 2) & 3);
+    }
+
+    /**
+     * Called at the end of each level tick, after {@link RadiationField#onLevelTick}, to send changed sections to the players watching them.
+     */
+    public static void onLevelTick(ServerLevel level)
+    {
+        if (level.players().isEmpty())
+        {
+            // Nobody to send to, and players who arrive later are sent every chunk they watch in full
+            RadiationField.drainChangedSections(level, section -> {});
+            return;
+        }
+
+        RadiationField.drainChangedSections(level, section -> {
+            for (ServerPlayer player : level.getChunkSource().chunkMap.getPlayers(new ChunkPos(SectionPos.x(section), SectionPos.z(section)), false))
+            {
+                getState(player).dirty.add(section);
+            }
+        });
+
+        final long time = level.getGameTime();
+        for (ServerPlayer player : level.players())
+        {
+            final State state = STATES.get(player.getUUID());
+            if (state != null && !state.dirty.isEmpty() && time >= state.nextSync)
+            {
+                state.nextSync = time + INTERVAL;
+                send(level, player, state);
+            }
+        }
+    }
+
+    /**
+     * Called when a chunk is sent to a player, to send them the field of the chunk.
+     */
+    public static void onWatch(ServerLevel level, ServerPlayer player, ChunkPos pos)
+    {
+        final RadiationChunk chunk = RadiationField.getChunk(level, pos.x, pos.z);
+        if (chunk == null)
+        {
+            return;
+        }
+        State state = null;
+        for (int index = 0; index < level.getSectionsCount(); index++)
+        {
+            if (chunk.getLayer(index) != null)
+            {
+                if (state == null)
+                {
+                    state = getState(player);
+                }
+                state.dirty.add(SectionPos.asLong(pos.x, level.getSectionYFromSectionIndex(index), pos.z));
+            }
+        }
+    }
+
+    /**
+     * Called when a chunk is no longer watched by a player. The client drops its copy of the field when it unloads the chunk.
+     */
+    public static void onUnWatch(ServerPlayer player, ChunkPos pos)
+    {
+        final State state = STATES.get(player.getUUID());
+        if (state != null)
+        {
+            state.sent.keySet().removeIf(section -> SectionPos.x(section) == pos.x && SectionPos.z(section) == pos.z);
+            state.dirty.removeIf(section -> SectionPos.x(section) == pos.x && SectionPos.z(section) == pos.z);
+        }
+    }
+
+    /**
+     * Called when a player logs out, or changes dimension, as the client discards its copy of the field.
+     */
+    public static void onReset(ServerPlayer player)
+    {
+        STATES.remove(player.getUUID());
+    }
+
+    private static State getState(ServerPlayer player)
+    {
+        return STATES.computeIfAbsent(player.getUUID(), key -> new State());
+    }
+
+    private static void send(ServerLevel level, ServerPlayer player, State state)
+    {
+        SECTION_BUFFER.clear();
+        MASK_BUFFER.clear();
+        VALUE_BUFFER.clear();
+
+        int count = 0;
+        final LongIterator iterator = state.dirty.iterator();
+        while (iterator.hasNext() && SECTION_BUFFER.size() < MAX_SECTIONS)
+        {
+            final long section = iterator.nextLong();
+            iterator.remove();
+
+            final byte[] cells = quantize(level, section) ? CELL_BUFFER : null;
+            final byte[] sent = state.sent.get(section);
+            long mask = 0;
+            for (int cell = 0; cell < CELLS_PER_SECTION; cell++)
+            {
+                final int value = cells == null ? 0 : cells[cell];
+                if (value != (sent == null ? 0 : sent[cell]))
+                {
+                    mask |= 1L << cell;
+                    // Values are packed two per byte, low nibble first
+                    if ((count & 1) == 0)
+                    {
+                        VALUE_BUFFER.add((byte) value);
+                    }
+                    else
+                    {
+                        final int last = VALUE_BUFFER.size() - 1;
+                        VALUE_BUFFER.set(last, (byte) (VALUE_BUFFER.getByte(last) | (value << 4)));
+                    }
+                    count++;
+                }
+            }
+            if (mask == 0)
+            {
+                continue;
+            }
+
+            SECTION_BUFFER.add(section);
+            MASK_BUFFER.add(mask);
+            if (cells == null)
+            {
+                state.sent.remove(section);
+            }
+            else if (sent == null)
+            {
+                state.sent.put(section, cells.clone());
+            }
+            else
+            {
+                System.arraycopy(cells, 0, sent, 0, CELLS_PER_SECTION);
+            }
+        }
+
+        if (!SECTION_BUFFER.isEmpty())
+        {
+            PacketDistributor.sendToPlayer(player, new RadiationSyncPacket(SECTION_BUFFER.toLongArray(), MASK_BUFFER.toLongArray(), VALUE_BUFFER.toByteArray()));
+        }
+    }
+
+    /**
+     * Quantizes the field of a section into {@link #CELL_BUFFER}.
+     *
+     * @return {@code false} if the section has no radiation, in which case the buffer is not filled.
+     */
+    private static boolean quantize(ServerLevel level, long section)
+    {
+        final RadiationChunk chunk = RadiationField.getChunk(level, SectionPos.x(section), SectionPos.z(section));
+        final DataLayer layer = chunk == null ? null : chunk.getLayer(level.getSectionIndexFromSectionY(SectionPos.y(section)));
+        if (layer == null || layer.isEmpty())
+        {
+            return false;
+        }
+
+        // Layers are indexed by y << 8 | z << 4 | x, two positions per byte, which always share a cell as they only differ in the lowest bit of x
+        final byte[] data = layer.getData();
+        Arrays.fill(CELL_BUFFER, (byte) 0);
+        boolean any = false;
+        for (int i = 0; i < data.length; i++)
+        {
+            final int packed = data[i];
+            if (packed != 0)
+            {
+                final int index = i << 1;
+                final int cell = cellIndex(index & 15, index >> 8, index >> 4);
+                final int value = Math.max(packed & 15, (packed >> 4) & 15);
+                if (value > CELL_BUFFER[cell])
+                {
+                    CELL_BUFFER[cell] = (byte) value;
+                    any = true;
+                }
+            }
+        }
+        return any;
+    }
+
+    /**
+     * The sync state of a single player.
+     */
+    static final class State
+    {
+        /**
+         * The cells last sent for each section. Sections which were last sent with no radiation are absent.
+         */
+        final Long2ObjectMap<byte[]> sent = new Long2ObjectOpenHashMap<>();
+
+        /**
+         * Sections which may differ from what was last sent, in the order they changed.
+         */
+        final LongLinkedOpenHashSet dirty = new LongLinkedOpenHashSet();
+
+        long nextSync = 0;
+    }
+}
@@ -0,0 +1,151 @@
+package dev.cassis2310.falloutmc.util;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraft.core.Holder;
+import net.minecraft.core.HolderSet;
+import net.minecraft.core.Registry;
+import net.minecraft.tags.TagKey;
+import net.minecraft.util.RandomSource;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A snapshot of the contents of a tag in a built-in registry. Membership is stored as a bitset indexed by the registry raw id of each element,
+ * so membership checks are a raw id lookup and a single bit test, rather than a set lookup on the element's holder. The elements themselves are
+ * stored in an immutable list, so iterating or picking a random element does not need to go through the registry's holder set.
+ * <p>
+ * There is one instance per tag, obtained via {@link #of(Registry, TagKey)}, which callers checking the same tag repeatedly may hold on to.
+ * All instances are invalidated when tags are reloaded, and are rebuilt lazily on the next query, see {@link LazySnapshot}.
+ *
+ * @param <T> The type of the registry elements.
+ */
+public final class CachedTag<T>
+{
+    private static final Map<TagKey<?>, CachedTag<?>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry The registry the tag belongs to.
+     * @param tag      The tag.
+     * @return         The cached tag for {@code tag}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CachedTag<T> of(Registry<T> registry, TagKey<T> tag)
+    {
+        final CachedTag<?> cached = CACHE.get(tag);
+        if (cached != null)
+        {
+            return (CachedTag<T>) cached;
+        }
+        return (CachedTag<T>) CACHE.computeIfAbsent(tag, key -> new CachedTag<>(registry, tag));
+    }
+
+    /**
+     * Invalidates every cached tag. Called when tags are reloaded.
+     */
+    public static void invalidateAll()
+    {
+        for (CachedTag<?> cached : CACHE.values())
+        {
+            cached.invalidate();
+        }
+    }
+
+    private final Registry<T> registry;
+    private final TagKey<T> tag;
+    private final LazySnapshot<Snapshot<T>> snapshot = new LazySnapshot<>(this::build);
+
+    private CachedTag(Registry<T> registry, TagKey<T> tag)
+    {
+        this.registry = registry;
+        this.tag = tag;
+    }
+
+    /**
+     * @param value An element of the registry.
+     * @return      {@code true} if {@code value} is in this tag.
+     */
+    public boolean contains(T value)
+    {
+        final long[] members = snapshot.get().members;
+        final int id = registry.getId(value);
+        final int word = id >>> 6;
+        return id >= 0 && word < members.length && (members[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * @return The elements of this tag, as an immutable list.
+     */
+    public List<T> values()
+    {
+        return snapshot.get().values;
+    }
+
+    /**
+     * @return A stream of the elements of this tag.
+     */
+    public Stream<T> stream()
+    {
+        return snapshot.get().values.stream();
+    }
+
+    /**
+     * @return The number of elements in this tag.
+     */
+    public int size()
+    {
+        return snapshot.get().values.size();
+    }
+
+    /**
+     * @param random The random source to use.
+     * @return       A random element of this tag, or {@code null} if the tag is empty.
+     */
+    @Nullable
+    public T random(RandomSource random)
+    {
+        final List<T> values = snapshot.get().values;
+        return values.isEmpty() ? null : values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * Discards the current snapshot, which will be rebuilt on the next query.
+     */
+    public void invalidate()
+    {
+        snapshot.invalidate();
+    }
+
+    public TagKey<T> tag()
+    {
+        return tag;
+    }
+
+    private Snapshot<T> build()
+    {
+        final long[] members = new long[(registry.size() + 63) >>> 6];
+        final HolderSet.Named<T> holders = registry.getTag(tag).orElse(null);
+        if (holders == null)
+        {
+            return new Snapshot<>(members, ImmutableList.of());
+        }
+
+        final ImmutableList.Builder<T> values = ImmutableList.builderWithExpectedSize(holders.size());
+        for (Holder<T> holder : holders)
+        {
+            final T value = holder.value();
+            final int id = registry.getId(value);
+            if (id >= 0 && (id >>> 6) < members.length)
+            {
+                members[id >>> 6] |= 1L << id;
+            }
+            values.add(value);
+        }
+        return new Snapshot<>(members, values.build());
+    }
+
+    private record Snapshot<T>(long[] members, ImmutableList<T> values) {}
+}
@@ -0,0 +1,402 @@
+package dev.cassis2310.falloutmc.util;
+
+import com.mojang.logging.LogUtils;
+import io.netty.handler.codec.DecoderException;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.core.Holder;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.NonNullList;
+import net.minecraft.core.component.DataComponentPatch;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtAccounterException;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.Tag;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.resources.RegistryOps;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary encoding for lists of item stacks (i.e. the contents of a large inventory), as an alternative to
+ * {@link Helpers#writeItemStacksToNbt}, which writes a full compound tag, with the item id as a string, for every slot including empty ones.
+ * <ul>
+ *     <li>Each distinct item is written once, in a palette, and stacks refer to it by palette index.</li>
+ *     <li>Runs of consecutive empty slots are written as a single run length.</li>
+ *     <li>Indexes, counts and run lengths are written as varints, and components are only written for stacks which have any.</li>
+ * </ul>
+ * There are two variants of the format. The network variant writes to a {@link RegistryFriendlyByteBuf}, with items as registry ids, and components
+ * with their stream codec. The disk variant writes to a {@link DataOutput}, with items as resource locations, and components as NBT, so that it is
+ * stable across changes to registry ids. For block entities, {@link #toTag} and {@link #fromTag} wrap the disk variant in a byte array tag.
+ */
+public final class CompactItemStacks
+{
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    private static final StreamCodec<RegistryFriendlyByteBuf, Holder<Item>> ITEM_STREAM_CODEC = ByteBufCodecs.holderRegistry(Registries.ITEM);
+
+    // Each slot, or run of slots, starts with a token. The low bit distinguishes a run of empty slots from a stack,
+    // the next bit of a stack token marks whether components follow, and the remaining bits are the run length or palette index.
+    private static final int EMPTY_RUN = 0b01;
+    private static final int HAS_COMPONENTS = 0b10;
+
+    /**
+     * The largest list which will be read. Reading trusts neither the sizes, nor the indexes and run lengths it is given, as a malformed buffer
+     * or save would otherwise allocate arbitrarily large lists, or fail with an unchecked exception part way through.
+     */
+    public static final int MAX_SIZE = 1 << 16;
+
+    /**
+     * The most bytes of component NBT which will be read, in total, by a single {@link #read(DataInput, HolderLookup.Provider)}. This is the
+     * same limit vanilla applies to NBT received over the network.
+     */
+    public static final long MAX_COMPONENT_BYTES = 0x200000L;
+
+    /**
+     * Writes {@code stacks} to a network buffer.
+     *
+     * @param buffer The buffer to write to.
+     * @param stacks The stacks to write, of which there may be at most {@link #MAX_SIZE}.
+     */
+    public static void write(RegistryFriendlyByteBuf buffer, List<ItemStack> stacks)
+    {
+        checkSize(stacks);
+        final List<Item> palette = new ArrayList<>();
+        final int[] indexes = palette(stacks, palette);
+
+        buffer.writeVarInt(stacks.size());
+        buffer.writeVarInt(palette.size());
+        for (Item item : palette)
+        {
+            ITEM_STREAM_CODEC.encode(buffer, item.builtInRegistryHolder());
+        }
+
+        for (int slot = 0; slot < stacks.size(); )
+        {
+            final ItemStack stack = stacks.get(slot);
+            if (stack.isEmpty())
+            {
+                final int run = emptyRun(stacks, slot);
+                buffer.writeVarInt((run << 2) | EMPTY_RUN);
+                slot += run;
+                continue;
+            }
+
+            final DataComponentPatch patch = stack.getComponentsPatch();
+            buffer.writeVarInt((indexes[slot] << 2) | (patch.isEmpty() ? 0 : HAS_COMPONENTS));
+            buffer.writeVarInt(stack.getCount());
+            if (!patch.isEmpty())
+            {
+                DataComponentPatch.STREAM_CODEC.encode(buffer, patch);
+            }
+            slot++;
+        }
+    }
+
+    /**
+     * Reads stacks written by {@link #write(RegistryFriendlyByteBuf, List)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return       A list of the stacks read, with the same size as the list which was written.
+     * @throws DecoderException if the buffer is malformed.
+     */
+    public static NonNullList<ItemStack> read(RegistryFriendlyByteBuf buffer)
+    {
+        final int size = buffer.readVarInt();
+        if (size < 0 || size > MAX_SIZE)
+        {
+            throw new DecoderException("Invalid size: " + size + ", must be in [0, " + MAX_SIZE + "]");
+        }
+        // Each palette entry takes at least one byte, and there cannot be more distinct items than slots
+        final int paletteSize = buffer.readVarInt();
+        if (paletteSize < 0 || paletteSize > size || paletteSize > buffer.readableBytes())
+        {
+            throw new DecoderException("Invalid palette size: " + paletteSize + " for size " + size);
+        }
+        final Holder<?>[] palette = new Holder<?>[paletteSize];
+        for (int i = 0; i < paletteSize; i++)
+        {
+            palette[i] = ITEM_STREAM_CODEC.decode(buffer);
+        }
+
+        final NonNullList<ItemStack> stacks = NonNullList.withSize(size, ItemStack.EMPTY);
+        for (int slot = 0; slot < size; )
+        {
+            final int token = buffer.readVarInt();
+            final int value = token >>> 2;
+            if ((token & EMPTY_RUN) != 0)
+            {
+                if (value <= 0 || value > size - slot)
+                {
+                    throw new DecoderException("Invalid empty run: " + value + " at slot " + slot + " of " + size);
+                }
+                slot += value;
+                continue;
+            }
+            if (value >= paletteSize)
+            {
+                throw new DecoderException("Invalid palette index: " + value + " at slot " + slot + ", palette size " + paletteSize);
+            }
+
+            final int count = buffer.readVarInt();
+            final DataComponentPatch patch = (token & HAS_COMPONENTS) != 0 ? DataComponentPatch.STREAM_CODEC.decode(buffer) : DataComponentPatch.EMPTY;
+            stacks.set(slot++, stack(palette[value], count, patch));
+        }
+        return stacks;
+    }
+
+    /**
+     * Writes {@code stacks} to a data output, for saving to disk.
+     *
+     * @param output   The output to write to.
+     * @param provider The provider for resolving data during serialization.
+     * @param stacks   The stacks to write, of which there may be at most {@link #MAX_SIZE}.
+     * @throws IOException if the output throws.
+     */
+    public static void write(DataOutput output, HolderLookup.Provider provider, List<ItemStack> stacks) throws IOException
+    {
+        checkSize(stacks);
+        final List<Item> palette = new ArrayList<>();
+        final int[] indexes = palette(stacks, palette);
+
+        writeVarInt(output, stacks.size());
+        writeVarInt(output, palette.size());
+        for (Item item : palette)
+        {
+            output.writeUTF(BuiltInRegistries.ITEM.getKey(item).toString());
+        }
+
+        RegistryOps<Tag> ops = null;
+        for (int slot = 0; slot < stacks.size(); )
+        {
+            final ItemStack stack = stacks.get(slot);
+            if (stack.isEmpty())
+            {
+                final int run = emptyRun(stacks, slot);
+                writeVarInt(output, (run << 2) | EMPTY_RUN);
+                slot += run;
+                continue;
+            }
+
+            final DataComponentPatch patch = stack.getComponentsPatch();
+            writeVarInt(output, (indexes[slot] << 2) | (patch.isEmpty() ? 0 : HAS_COMPONENTS));
+            writeVarInt(output, stack.getCount());
+            if (!patch.isEmpty())
+            {
+                if (ops == null)
+                {
+                    ops = provider.createSerializationContext(NbtOps.INSTANCE);
+                }
+                NbtIo.writeAnyTag(DataComponentPatch.CODEC.encodeStart(ops, patch).getOrThrow(), output);
+            }
+            slot++;
+        }
+    }
+
+    /**
+     * Reads stacks written by {@link #write(DataOutput, HolderLookup.Provider, List)}. Stacks of items which no longer exist are read as empty.
+     *
+     * @param input    The input to read from.
+     * @param provider The provider for resolving data during deserialization.
+     * @return         A list of the stacks read, with the same size as the list which was written.
+     * @throws IOException if the input throws, ends early, is malformed, or holds more than {@link #MAX_COMPONENT_BYTES} of components.
+     */
+    public static NonNullList<ItemStack> read(DataInput input, HolderLookup.Provider provider) throws IOException
+    {
+        final int size = readVarInt(input);
+        if (size < 0 || size > MAX_SIZE)
+        {
+            throw new IOException("Invalid size: " + size + ", must be in [0, " + MAX_SIZE + "]");
+        }
+        final int paletteSize = readVarInt(input);
+        if (paletteSize < 0 || paletteSize > size)
+        {
+            throw new IOException("Invalid palette size: " + paletteSize + " for size " + size);
+        }
+        final Holder<?>[] palette = new Holder<?>[paletteSize];
+        for (int i = 0; i < paletteSize; i++)
+        {
+            final ResourceLocation id = ResourceLocation.tryParse(input.readUTF());
+            palette[i] = id == null ? null : BuiltInRegistries.ITEM.getHolder(id).orElse(null);
+        }
+
+        final NonNullList<ItemStack> stacks = NonNullList.withSize(size, ItemStack.EMPTY);
+        final NbtAccounter accounter = NbtAccounter.create(MAX_COMPONENT_BYTES);
+        RegistryOps<Tag> ops = null;
+        for (int slot = 0; slot < size; )
+        {
+            final int token = readVarInt(input);
+            final int value = token >>> 2;
+            if ((token & EMPTY_RUN) != 0)
+            {
+                if (value <= 0 || value > size - slot)
+                {
+                    throw new IOException("Invalid empty run: " + value + " at slot " + slot + " of " + size);
+                }
+                slot += value;
+                continue;
+            }
+            if (value >= paletteSize)
+            {
+                throw new IOException("Invalid palette index: " + value + " at slot " + slot + ", palette size " + paletteSize);
+            }
+
+            final int count = readVarInt(input);
+            DataComponentPatch patch = DataComponentPatch.EMPTY;
+            if ((token & HAS_COMPONENTS) != 0)
+            {
+                if (ops == null)
+                {
+                    ops = provider.createSerializationContext(NbtOps.INSTANCE);
+                }
+                final Tag tag = readComponents(input, accounter);
+                patch = DataComponentPatch.CODEC.parse(ops, tag)
+                    .resultOrPartial(error -> LOGGER.error("Failed to read item components: '{}'", error))
+                    .orElse(DataComponentPatch.EMPTY);
+            }
+            stacks.set(slot++, stack(palette[value], count, patch));
+        }
+        return stacks;
+    }
+
+    /**
+     * Encodes {@code stacks} with the disk variant, into a byte array tag which can be stored in a block entity's saved data.
+     *
+     * @param provider The provider for resolving data during serialization.
+     * @param stacks   The stacks to write.
+     * @return         A byte array tag containing the encoded stacks.
+     */
+    public static ByteArrayTag toTag(HolderLookup.Provider provider, List<ItemStack> stacks)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + stacks.size() * 4);
+        Helpers.uncheck(() -> write(new DataOutputStream(bytes), provider, stacks));
+        return new ByteArrayTag(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes stacks from a tag created by {@link #toTag}.
+     *
+     * @param provider The provider for resolving data during deserialization.
+     * @param tag      The byte array tag.
+     * @return         A list of the stacks read, or an empty list if the tag could not be read.
+     */
+    public static NonNullList<ItemStack> fromTag(HolderLookup.Provider provider, ByteArrayTag tag)
+    {
+        try
+        {
+            return read(new DataInputStream(new ByteArrayInputStream(tag.getAsByteArray())), provider);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Failed to read compact item stacks", e);
+            return NonNullList.create();
+        }
+    }
+
+    /**
+     * Builds the palette of distinct items in {@code stacks}, and returns the palette index of each slot (or zero, for empty slots).
+     */
+    private static int[] palette(List<ItemStack> stacks, List<Item> palette)
+    {
+        final Reference2IntMap<Item> paletteIndexes = new Reference2IntOpenHashMap<>();
+        final int[] indexes = new int[stacks.size()];
+        for (int slot = 0; slot < stacks.size(); slot++)
+        {
+            final ItemStack stack = stacks.get(slot);
+            if (!stack.isEmpty())
+            {
+                final Item item = stack.getItem();
+                int index = paletteIndexes.getOrDefault(item, -1);
+                if (index == -1)
+                {
+                    index = palette.size();
+                    palette.add(item);
+                    paletteIndexes.put(item, index);
+                }
+                indexes[slot] = index;
+            }
+        }
+        return indexes;
+    }
+
+    private static void checkSize(List<ItemStack> stacks)
+    {
+        if (stacks.size() > MAX_SIZE)
+        {
+            throw new IllegalArgumentException("Cannot write " + stacks.size() + " stacks, at most " + MAX_SIZE + " can be read back");
+        }
+    }
+
+    private static int emptyRun(List<ItemStack> stacks, int start)
+    {
+        int end = start + 1;
+        while (end < stacks.size() && stacks.get(end).isEmpty())
+        {
+            end++;
+        }
+        return end - start;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ItemStack stack(@Nullable Holder<?> item, int count, DataComponentPatch patch)
+    {
+        return item == null || count <= 0 ? ItemStack.EMPTY : new ItemStack((Holder<Item>) item, count, patch);
+    }
+
+    private static Tag readComponents(DataInput input, NbtAccounter accounter) throws IOException
+    {
+        try
+        {
+            return NbtIo.readAnyTag(input, accounter);
+        }
+        catch (NbtAccounterException e)
+        {
+            // Unchecked, but is just as much a malformed input as any other
+            throw new IOException(e);
+        }
+    }
+
+    private static void writeVarInt(DataOutput output, int value) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput input) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            final byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("VarInt too big");
+    }
+}
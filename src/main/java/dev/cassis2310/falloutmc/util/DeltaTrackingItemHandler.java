@@ -0,0 +1,280 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntArrayTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.items.IItemHandlerModifiable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * An item handler which wraps another, and tracks which slots have changed, so large inventories (i.e. vaults) only re-serialize what changed.
+ * <ul>
+ *     <li>For saving, the tag of each slot is cached, and only the tags of slots changed since the last save are rebuilt.
+ *     The saved list has the same format as {@link Helpers#writeItemStacksToNbt}.</li>
+ *     <li>For syncing, {@link #writeSyncDelta} writes only the slots changed since the last sync, which {@link #readSyncDelta} applies on the other side.</li>
+ * </ul>
+ * Changes made through this handler are tracked automatically. Stacks returned by {@link #getStackInSlot} must not be modified, or if they are,
+ * the slot must be marked with {@link #markDirty(int)}.
+ */
+public class DeltaTrackingItemHandler implements IItemHandlerModifiable
+{
+    private static final String SLOTS = "slots";
+    private static final String STACKS = "stacks";
+
+    private final IItemHandlerModifiable delegate;
+    private final @Nullable Runnable onChanged;
+    private final long[] syncDirty;
+    private final long[] saveDirty;
+    private final Tag[] savedTags;
+
+    public DeltaTrackingItemHandler(IItemHandlerModifiable delegate)
+    {
+        this(delegate, null);
+    }
+
+    /**
+     * @param delegate  The inventory to wrap. Its number of slots must not change.
+     * @param onChanged Called whenever a slot changes, i.e. to mark a block entity as changed.
+     */
+    public DeltaTrackingItemHandler(IItemHandlerModifiable delegate, @Nullable Runnable onChanged)
+    {
+        final int slots = delegate.getSlots();
+        this.delegate = delegate;
+        this.onChanged = onChanged;
+        this.syncDirty = new long[(slots + 63) >>> 6];
+        this.saveDirty = new long[(slots + 63) >>> 6];
+        this.savedTags = new Tag[slots];
+
+        // Nothing has been saved or synced yet
+        Arrays.fill(syncDirty, -1L);
+        Arrays.fill(saveDirty, -1L);
+        clearUnusedBits();
+    }
+
+    @Override
+    public int getSlots()
+    {
+        return savedTags.length;
+    }
+
+    @Override
+    public ItemStack getStackInSlot(int slot)
+    {
+        return delegate.getStackInSlot(slot);
+    }
+
+    @Override
+    public ItemStack insertItem(int slot, ItemStack stack, boolean simulate)
+    {
+        final ItemStack remainder = delegate.insertItem(slot, stack, simulate);
+        if (!simulate && remainder.getCount() != stack.getCount())
+        {
+            markDirty(slot);
+        }
+        return remainder;
+    }
+
+    @Override
+    public ItemStack extractItem(int slot, int amount, boolean simulate)
+    {
+        final ItemStack extracted = delegate.extractItem(slot, amount, simulate);
+        if (!simulate && !extracted.isEmpty())
+        {
+            markDirty(slot);
+        }
+        return extracted;
+    }
+
+    @Override
+    public void setStackInSlot(int slot, ItemStack stack)
+    {
+        delegate.setStackInSlot(slot, stack);
+        markDirty(slot);
+    }
+
+    @Override
+    public int getSlotLimit(int slot)
+    {
+        return delegate.getSlotLimit(slot);
+    }
+
+    @Override
+    public boolean isItemValid(int slot, ItemStack stack)
+    {
+        return delegate.isItemValid(slot, stack);
+    }
+
+    /**
+     * Marks a slot as changed, both for saving and syncing.
+     *
+     * @param slot The slot.
+     */
+    public void markDirty(int slot)
+    {
+        syncDirty[slot >>> 6] |= 1L << slot;
+        saveDirty[slot >>> 6] |= 1L << slot;
+        if (onChanged != null)
+        {
+            onChanged.run();
+        }
+    }
+
+    /**
+     * Marks every slot as changed, i.e. after the wrapped inventory has been modified directly.
+     */
+    public void markAllDirty()
+    {
+        Arrays.fill(syncDirty, -1L);
+        Arrays.fill(saveDirty, -1L);
+        clearUnusedBits();
+        if (onChanged != null)
+        {
+            onChanged.run();
+        }
+    }
+
+    /**
+     * @return {@code true} if any slot has changed since the last call to {@link #writeSyncDelta}.
+     */
+    public boolean needsSync()
+    {
+        for (long word : syncDirty)
+        {
+            if (word != 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the full contents of this inventory, only re-serializing the slots which changed since the last save.
+     *
+     * @param provider The provider for resolving data during serialization.
+     * @return         A list tag, in the same format as {@link Helpers#writeItemStacksToNbt}.
+     */
+    public ListTag save(HolderLookup.Provider provider)
+    {
+        for (int word = 0; word < saveDirty.length; word++)
+        {
+            long bits = saveDirty[word];
+            while (bits != 0)
+            {
+                final int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                savedTags[slot] = delegate.getStackInSlot(slot).saveOptional(provider);
+                bits &= bits - 1;
+            }
+            saveDirty[word] = 0;
+        }
+
+        // The list is new, as the caller owns it, but the tags in it are shared with the cache, and are never modified after being created
+        final ListTag list = new ListTag();
+        for (Tag tag : savedTags)
+        {
+            list.add(tag);
+        }
+        return list;
+    }
+
+    /**
+     * Reads the full contents of this inventory, from a list written by {@link #save} or {@link Helpers#writeItemStacksToNbt}.
+     * Read tags are cached, so the next save only needs to re-serialize slots changed after loading.
+     *
+     * @param provider The provider for resolving data during deserialization.
+     * @param list     The list tag.
+     */
+    public void load(HolderLookup.Provider provider, ListTag list)
+    {
+        final int size = Math.min(list.size(), savedTags.length);
+        for (int slot = 0; slot < size; slot++)
+        {
+            final CompoundTag tag = list.getCompound(slot);
+            delegate.setStackInSlot(slot, ItemStack.parseOptional(provider, tag));
+            savedTags[slot] = tag;
+            saveDirty[slot >>> 6] &= ~(1L << slot);
+            syncDirty[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    /**
+     * Writes the slots which changed since the last call, and marks them as synced.
+     *
+     * @param provider The provider for resolving data during serialization.
+     * @return         A tag with the indexes and contents of the changed slots, to be applied with {@link #readSyncDelta}.
+     */
+    public CompoundTag writeSyncDelta(HolderLookup.Provider provider)
+    {
+        int count = 0;
+        for (long word : syncDirty)
+        {
+            count += Long.bitCount(word);
+        }
+
+        final int[] slots = new int[count];
+        final ListTag stacks = new ListTag();
+        int index = 0;
+        for (int word = 0; word < syncDirty.length; word++)
+        {
+            long bits = syncDirty[word];
+            while (bits != 0)
+            {
+                final int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                slots[index++] = slot;
+                stacks.add(delegate.getStackInSlot(slot).saveOptional(provider));
+                bits &= bits - 1;
+            }
+            syncDirty[word] = 0;
+        }
+
+        final CompoundTag tag = new CompoundTag();
+        tag.put(SLOTS, new IntArrayTag(slots));
+        tag.put(STACKS, stacks);
+        return tag;
+    }
+
+    /**
+     * Applies a tag written by {@link #writeSyncDelta}.
+     *
+     * @param provider The provider for resolving data during deserialization.
+     * @param tag      The delta tag.
+     */
+    public void readSyncDelta(HolderLookup.Provider provider, CompoundTag tag)
+    {
+        final int[] slots = tag.getIntArray(SLOTS);
+        final ListTag stacks = tag.getList(STACKS, Tag.TAG_COMPOUND);
+        for (int i = 0; i < Math.min(slots.length, stacks.size()); i++)
+        {
+            final int slot = slots[i];
+            if (slot >= 0 && slot < savedTags.length)
+            {
+                delegate.setStackInSlot(slot, ItemStack.parseOptional(provider, stacks.getCompound(i)));
+                saveDirty[slot >>> 6] |= 1L << slot;
+            }
+        }
+    }
+
+    private void clearUnusedBits()
+    {
+        // Bits past the last slot in the last word must stay clear, as they are iterated as slot indexes
+        final int used = savedTags.length & 63;
+        if (used != 0)
+        {
+            syncDirty[syncDirty.length - 1] &= (1L << used) - 1;
+            saveDirty[saveDirty.length - 1] &= (1L << used) - 1;
+        }
+    }
+
+    /**
+     * @return The wrapped inventory.
+     */
+    public IItemHandlerModifiable delegate()
+    {
+        return delegate;
+    }
+}
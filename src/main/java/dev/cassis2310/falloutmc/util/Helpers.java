@@ -1,5 +1,6 @@
 package dev.cassis2310.falloutmc.util;
 
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
@@ -7,14 +8,12 @@ import com.machinezoo.noexception.throwing.ThrowingRunnable;
 import com.machinezoo.noexception.throwing.ThrowingSupplier;
 import com.mojang.logging.LogUtils;
 import dev.cassis2310.falloutmc.FalloutMc;
-import dev.cassis2310.falloutmc.client.ClientHelpers;
 import net.minecraft.core.*;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.WorldGenRegion;
 import net.minecraft.sounds.SoundEvent;
@@ -44,15 +43,17 @@ import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
 import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.phys.shapes.VoxelShape;
+import net.neoforged.fml.LogicalSide;
 import net.neoforged.neoforge.capabilities.BlockCapability;
 import net.neoforged.neoforge.capabilities.ItemCapability;
 import net.neoforged.neoforge.items.IItemHandler;
 import net.neoforged.neoforge.items.IItemHandlerModifiable;
-import net.neoforged.neoforge.server.ServerLifecycleHooks;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -89,11 +90,6 @@ public class Helpers
      */
     private static final Logger LOGGER = LogUtils.getLogger();
 
-    /**
-     * Stores a reference to the recipe manager (initially null).
-     */
-    @Nullable private static RecipeManager CACHED_RECIPE_MANAGER = null;
-
     /**
      * Returns a {@link ResourceLocation} with the "falloutmc" namespace.
      * This method is commonly used to create resource paths specific to the FalloutMC mod.
@@ -267,6 +263,7 @@ public class Helpers
     /**
      * Returns a random value from a map, using the provided random source.
      * This method is useful for randomly selecting a value from a collection of mapped data.
+     * This is constant time for immutable maps, but linear in the size of the map otherwise. For repeated selection from large, mutable maps, use a {@link RandomTable}.
      *
      * @param map    The map to select from.
      * @param random The random source to use.
@@ -276,7 +273,12 @@ public class Helpers
      */
     public static <K, V> V getRandomValue(Map<K, V> map, RandomSource random)
     {
-        return Iterators.get(map.values().iterator(), random.nextInt(map.size()));
+        final int index = random.nextInt(map.size());
+        if (map.values() instanceof ImmutableCollection<V> values)
+        {
+            return values.asList().get(index);
+        }
+        return Iterators.get(map.values().iterator(), index);
     }
 
     /**
@@ -443,49 +445,31 @@ public class Helpers
     }
 
     /**
-     * Retrieves the RecipeManager unsafely, which might return null.
+     * Retrieves the RecipeManager unsafely, from whichever side has one available, preferring the server.
+     * @see RecipeManagers
      *
      * @return The RecipeManager instance if available.
      * @throws IllegalStateException if no RecipeManager is found.
      */
     public static RecipeManager getUnsafeRecipeManager()
     {
-        final MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
-        if (server != null)
-        {
-            return server.getRecipeManager();
-        }
-
-        try
-        {
-            final RecipeManager client = ClientHelpers.tryGetSafeRecipeManager();
-            if (client != null)
-            {
-                return client;
-            }
-        }
-        catch (Throwable t)
+        final RecipeManager manager = RecipeManagers.getManager();
+        if (manager != null)
         {
-            LOGGER.info("^ This is fine - No client or server recipe manager present upon initial resource reload on physical server");
+            return manager;
         }
-
-        if (CACHED_RECIPE_MANAGER != null)
-        {
-            return CACHED_RECIPE_MANAGER;
-        }
-
-        throw new IllegalStateException("No recipe manager was present - tried server, client, and captured value. This will cause problems!");
+        throw new IllegalStateException("No recipe manager was present - neither server nor client has published one. This will cause problems!");
     }
 
     /**
-     * Caches the RecipeManager instance for later use.
-     * This method is useful for optimizing repeated access to the recipe manager.
+     * Caches the RecipeManager instance for later use, as the server side recipe manager.
+     * This is called automatically when the server has started, and after every successful resource reload.
      *
      * @param manager The RecipeManager to cache.
      */
     public static void setCachedRecipeManager(RecipeManager manager)
     {
-        CACHED_RECIPE_MANAGER = manager;
+        RecipeManagers.publish(LogicalSide.SERVER, manager);
     }
 
     /**
@@ -617,8 +601,52 @@ public class Helpers
         };
     }
 
+    /**
+     * Calls {@code action} for every slot in the given inventory, without allocating an iterator.
+     * @see InventoryCursor
+     *
+     * @param inventory The inventory to iterate over.
+     * @param action    The action to perform for each slot and its stack.
+     */
+    public static void forEachSlot(IItemHandler inventory, SlotConsumer action)
+    {
+        forEachSlot(inventory, 0, inventory.getSlots(), action);
+    }
+
+    /**
+     * Calls {@code action} for every slot in a range of the given inventory, without allocating an iterator.
+     *
+     * @param inventory          The inventory to iterate over.
+     * @param startSlotInclusive The starting slot (inclusive).
+     * @param endSlotExclusive   The ending slot (exclusive).
+     * @param action             The action to perform for each slot and its stack.
+     */
+    public static void forEachSlot(IItemHandler inventory, int startSlotInclusive, int endSlotExclusive, SlotConsumer action)
+    {
+        for (int slot = startSlotInclusive; slot < endSlotExclusive; slot++)
+        {
+            action.accept(slot, inventory.getStackInSlot(slot));
+        }
+    }
+
+    /**
+     * Calls {@code action} for every slot in the given RecipeInput inventory, without allocating an iterator.
+     *
+     * @param inventory The RecipeInput inventory to iterate over.
+     * @param action    The action to perform for each slot and its stack.
+     */
+    public static void forEachSlot(RecipeInput inventory, SlotConsumer action)
+    {
+        final int size = inventory.size();
+        for (int slot = 0; slot < size; slot++)
+        {
+            action.accept(slot, inventory.getItem(slot));
+        }
+    }
+
     /**
      * Writes a list of ItemStacks to NBT format.
+     * For large inventories, prefer {@link CompactItemStacks}, which is much smaller, and skips empty slots.
      *
      * @param provider The provider for resolving data during serialization.
      * @param stacks   The list of ItemStacks to write to NBT.
@@ -645,12 +673,26 @@ public class Helpers
     public static void readItemStacksFromNbt(HolderLookup.Provider provider, List<ItemStack> stacks, ListTag list)
     {
         stacks.clear();
-        for (int i = 0; 1< list.size(); i++)
+        for (int i = 0; i < list.size(); i++)
         {
             stacks.add(ItemStack.parseOptional(provider, list.getCompound(i)));
         }
     }
 
+    /**
+     * Reads ItemStacks from NBT in parallel, off the calling thread, and hands them back on {@code mainExecutor}.
+     * @see ParallelItemStackReader
+     *
+     * @param provider     The provider for resolving data during deserialization.
+     * @param list         The ListTag containing the NBT data. This must not be modified until the returned future completes.
+     * @param mainExecutor The executor on which to complete the returned future, i.e. the server.
+     * @return             A future of the deserialized ItemStacks, one per element of {@code list}.
+     */
+    public static CompletableFuture<ItemStack[]> readItemStacksFromNbtAsync(HolderLookup.Provider provider, ListTag list, Executor mainExecutor)
+    {
+        return ParallelItemStackReader.read(provider, list, mainExecutor);
+    }
+
     /**
      * Reads ItemStacks from NBT and sets them in the provided list.
      * Assumes the list has a fixed size and replaces existing elements.
@@ -698,7 +740,7 @@ public class Helpers
      */
     public static void gatherAndConsumeItems(Level level, AABB bounds, IItemHandler inventory, int minSlotInclusive, int maxSlotExclusive)
     {
-        gatherAndConsumeItems(level.getEntitiesOfClass(ItemEntity.class, bounds, EntitySelector.ENTITY_STILL_ALIVE), inventory, minSlotInclusive, maxSlotExclusive, Integer.MAX_VALUE);
+        gatherAndConsumeItems(getItemEntities(level, bounds), inventory, minSlotInclusive, maxSlotExclusive, Integer.MAX_VALUE);
     }
 
     /**
@@ -714,7 +756,48 @@ public class Helpers
      */
     public static void gatherAndConsumeItems(Level level, AABB bounds, IItemHandler inventory, int minSlotInclusive, int maxSlotInclusive, int maxItemsOverride)
     {
-        gatherAndConsumeItems(level.getEntitiesOfClass(ItemEntity.class, bounds, EntitySelector.ENTITY_STILL_ALIVE), inventory, minSlotInclusive, maxSlotInclusive, maxItemsOverride);
+        gatherAndConsumeItems(getItemEntities(level, bounds), inventory, minSlotInclusive, maxSlotInclusive, maxItemsOverride);
+    }
+
+    /**
+     * Gathers and consumes items within a bounding box, storing them in an inventory, at the end of the current level tick.
+     * On the server, all such requests in a level are processed together in one pass, skipping those whose owner has been removed by then.
+     * Otherwise, items are gathered immediately.
+     * @see ItemEntityIndex#requestGather
+     *
+     * @param owner             The block entity which owns {@code inventory}, and whose level the items reside in.
+     * @param bounds            The bounding box within which to gather items.
+     * @param inventory         The inventory to store gathered items.
+     * @param minSlotInclusive  The starting slot (inclusive) for storing items in the inventory.
+     * @param maxSlotInclusive  The ending slot (inclusive) for storing items in the inventory.
+     * @param maxItemsOverride  The maximum number of items to be gathered. If this limit is reached, no further items will be gathered.
+     */
+    @SuppressWarnings("DataFlowIssue") // BlockEntity.level is in practice never null
+    public static void requestGatherAndConsumeItems(BlockEntity owner, AABB bounds, IItemHandler inventory, int minSlotInclusive, int maxSlotInclusive, int maxItemsOverride)
+    {
+        final Level level = owner.getLevel();
+        final ItemEntityIndex index = ItemEntityIndex.get(level);
+        if (index != null)
+        {
+            index.requestGather(owner, bounds, inventory, minSlotInclusive, maxSlotInclusive, maxItemsOverride);
+        }
+        else
+        {
+            gatherAndConsumeItems(level, bounds, inventory, minSlotInclusive, maxSlotInclusive, maxItemsOverride);
+        }
+    }
+
+    /**
+     * Finds all living item entities within a bounding box. On the server, this uses the level's {@link ItemEntityIndex}.
+     *
+     * @param level  The level in which the items reside.
+     * @param bounds The bounding box within which to find items.
+     * @return       A list of the item entities found.
+     */
+    public static List<ItemEntity> getItemEntities(Level level, AABB bounds)
+    {
+        final ItemEntityIndex index = ItemEntityIndex.get(level);
+        return index != null ? index.getItems(bounds) : level.getEntitiesOfClass(ItemEntity.class, bounds, EntitySelector.ENTITY_STILL_ALIVE);
     }
 
     /**
@@ -743,7 +826,7 @@ public class Helpers
                 availableItems = maxItemsOverride;
             }
         }
-        Helpers.safelyConsumeItemsFromEntitiesIndividually(availableItemEntities, availableItems, item -> Helpers.insertSlots(inventory, item, minSlotInclusive, 1 + maxSlotInclusive).isEmpty());
+        Helpers.safelyConsumeItemsFromEntities(availableItemEntities, availableItems, stack -> Helpers.insertSlots(inventory, stack, minSlotInclusive, 1 + maxSlotInclusive));
     }
 
     /**
@@ -805,6 +888,57 @@ public class Helpers
         }
     }
 
+    /**
+     * Safely consumes item entities from a collection, up to a specified maximum number of items.
+     * Unlike {@link #safelyConsumeItemsFromEntitiesIndividually}, each entity's stack is offered to the consumer whole (capped to the remaining maximum),
+     * so consuming a full stack costs a single copy and a single call, rather than one of each per item.
+     * If the consumer does not accept all of a stack, the process stops. Entities whose stacks were fully consumed are discarded at the end.
+     *
+     * @param entities  A collection of ItemEntity objects to be consumed.
+     * @param maximum   The maximum number of items to consume.
+     * @param consumer  A function that processes each offered stack, and returns the remainder which it could not accept, or {@code ItemStack.EMPTY}.
+     *                  The offered stack is a copy, which the consumer may keep.
+     */
+    public static void safelyConsumeItemsFromEntities(Collection<ItemEntity> entities, int maximum, Function<ItemStack, ItemStack> consumer)
+    {
+        int consumed = 0;
+        int visited = 0;
+        for (ItemEntity entity : entities)
+        {
+            if (consumed >= maximum)
+            {
+                break;
+            }
+            visited++;
+
+            final ItemStack stack = entity.getItem();
+            if (stack.isEmpty())
+            {
+                continue;
+            }
+            final int offered = Math.min(stack.getCount(), maximum - consumed);
+            final int accepted = offered - consumer.apply(stack.copyWithCount(offered)).getCount();
+            consumed += accepted;
+            stack.shrink(accepted);
+            if (accepted < offered)
+            {
+                break;
+            }
+        }
+
+        for (ItemEntity entity : entities)
+        {
+            if (visited-- <= 0)
+            {
+                break;
+            }
+            if (entity.getItem().isEmpty())
+            {
+                entity.discard();
+            }
+        }
+    }
+
     /**
      * Removes and returns the ItemStack from the specified slot in the inventory.
      *
@@ -839,6 +973,7 @@ public class Helpers
      * @param slotEndExclusive   The ending slot index (exclusive).
      * @return                   The remaining ItemStack that couldn't be inserted,
      *                           or {@code ItemStack.EMPTY} if fully inserted.
+     * @see ItemTransaction for inserting and extracting across several inventories, all or nothing.
      */
     public static ItemStack insertSlots(IItemHandler inventory, ItemStack stack, int slotStartInclusive, int slotEndExclusive)
     {
@@ -853,6 +988,53 @@ public class Helpers
         return stack;
     }
 
+    /**
+     * Attempts to insert many stacks across all slots of an item handler at once.
+     * @see ItemInserter
+     *
+     * @param inventory The inventory into which the stacks should be inserted.
+     * @param stacks    The stacks to insert. These are not modified.
+     * @param simulate  If {@code true}, the inventory is not modified.
+     * @return          The remainders, one per stack and in the same order, each {@code ItemStack.EMPTY} if fully inserted.
+     */
+    public static List<ItemStack> insertAllSlots(IItemHandler inventory, List<ItemStack> stacks, boolean simulate)
+    {
+        return insertSlots(inventory, stacks, 0, inventory.getSlots(), simulate);
+    }
+
+    /**
+     * Attempts to insert many stacks into a range of slots in the given inventory at once.
+     * Each stack is first merged into slots already holding the same item, and only then into empty slots.
+     * This is much cheaper than calling {@link #insertSlots(IItemHandler, ItemStack, int, int)} for each stack, as the slots are only scanned once.
+     * @see ItemInserter
+     *
+     * @param inventory          The inventory into which the stacks should be inserted.
+     * @param stacks             The stacks to insert. These are not modified.
+     * @param slotStartInclusive The starting slot index (inclusive).
+     * @param slotEndExclusive   The ending slot index (exclusive).
+     * @param simulate           If {@code true}, the inventory is not modified.
+     * @return                   The remainders, one per stack and in the same order, each {@code ItemStack.EMPTY} if fully inserted.
+     */
+    public static List<ItemStack> insertSlots(IItemHandler inventory, List<ItemStack> stacks, int slotStartInclusive, int slotEndExclusive, boolean simulate)
+    {
+        return ItemInserter.insert(inventory, stacks, slotStartInclusive, slotEndExclusive, simulate);
+    }
+
+    /**
+     * Checks if every slot in the provided inventory is empty, without allocating an iterator.
+     *
+     * @param inventory The inventory to check.
+     * @return          {@code true} if every slot in the provided inventory is empty, otherwise {@code false}.
+     */
+    public static boolean isEmpty(IItemHandler inventory)
+    {
+        final int slots = inventory.getSlots();
+        for (int slot = 0; slot < slots; slot++)
+            if (!inventory.getStackInSlot(slot).isEmpty())
+                return false;
+        return true;
+    }
+
     /**
      * Checks if every slot in the provided inventory is empty.
      *
@@ -957,6 +1139,61 @@ public class Helpers
      * @param randomized If true, the drops will be randomized in position; otherwise, they will be centered.
      */
     public static void dropWithContext(ServerLevel level, BlockState state, BlockPos pos, Consumer<LootParams.Builder> consumer, boolean randomized)
+    {
+        getDropsWithContext(level, state, pos, consumer).forEach(stackToSpawn -> {
+            if (randomized)
+            {
+                Block.popResource(level, pos, stackToSpawn);
+            }
+            else
+            {
+                spawnDropsAtExactCenter(level, pos, stackToSpawn);
+            }
+        });
+        state.spawnAfterBreak(level, pos, ItemStack.EMPTY, false);
+    }
+
+    /**
+     * Drops items from many blocks at once, with a customizable loot context. This is a batch form of
+     * {@link #dropWithContext(ServerLevel, BlockState, BlockPos, Consumer, boolean)}: the drops of every block are gathered, and identical stacks
+     * are merged, before being spawned together at {@code dropPos}, so destroying a large number of blocks only spawns a few item entities.
+     * This must be called before the blocks are removed, so block entities are still present.
+     *
+     * @param level     The server-level where the items should be dropped.
+     * @param states    The block states from which the drops are generated.
+     * @param positions The positions of the blocks being processed, in the same order as {@code states}.
+     * @param consumer  A consumer to modify the loot context of each block before processing drops.
+     * @param dropPos   The position at which all drops are spawned.
+     */
+    public static void dropWithContext(ServerLevel level, List<BlockState> states, List<BlockPos> positions, Consumer<LootParams.Builder> consumer, BlockPos dropPos)
+    {
+        final List<ItemStack> merged = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++)
+        {
+            final BlockState state = states.get(i);
+            final BlockPos pos = positions.get(i);
+            for (ItemStack stack : getDropsWithContext(level, state, pos, consumer))
+            {
+                mergeInto(merged, stack);
+            }
+            state.spawnAfterBreak(level, pos, ItemStack.EMPTY, false);
+        }
+        for (ItemStack stack : merged)
+        {
+            spawnDropsAtExactCenter(level, dropPos, stack);
+        }
+    }
+
+    /**
+     * Generates the drops of a block with a customizable loot context, without spawning them.
+     *
+     * @param level    The server-level of the block.
+     * @param state    The block state from which the drops are generated.
+     * @param pos      The position of the block being processed.
+     * @param consumer A consumer to modify the loot context before processing drops.
+     * @return         The drops of the block.
+     */
+    public static List<ItemStack> getDropsWithContext(ServerLevel level, BlockState state, BlockPos pos, Consumer<LootParams.Builder> consumer)
     {
         BlockEntity tileEntity = state.hasBlockEntity() ? level.getBlockEntity(pos) : null;
 
@@ -967,17 +1204,31 @@ public class Helpers
                 .withOptionalParameter(LootContextParams.BLOCK_ENTITY, tileEntity);
         consumer.accept(params);
 
-        state.getDrops(params).forEach(stackToSpawn -> {
-            if (randomized)
+        return state.getDrops(params);
+    }
+
+    /**
+     * Merges {@code stack} into the stacks of {@code stacks} which are the same item, up to their maximum stack size, adding any remainder as new stacks.
+     */
+    private static void mergeInto(List<ItemStack> stacks, ItemStack stack)
+    {
+        for (ItemStack existing : stacks)
+        {
+            if (stack.isEmpty())
             {
-                Block.popResource(level, pos, stackToSpawn);
+                return;
             }
-            else
+            if (ItemStack.isSameItemSameComponents(existing, stack) && existing.getCount() < existing.getMaxStackSize())
             {
-                spawnDropsAtExactCenter(level, pos, stackToSpawn);
+                final int moved = Math.min(stack.getCount(), existing.getMaxStackSize() - existing.getCount());
+                existing.grow(moved);
+                stack.shrink(moved);
             }
-        });
-        state.spawnAfterBreak(level, pos, ItemStack.EMPTY, false);
+        }
+        while (!stack.isEmpty())
+        {
+            stacks.add(stack.split(stack.getMaxStackSize()));
+        }
     }
 
     /**
@@ -1143,6 +1394,7 @@ public class Helpers
      * Select N unique elements from a list, without having to shuffle the whole list.
      * This involves moving the selected elements to the end of the list. Note: this method will mutate the passed in list!
      * From <a href="https://stackoverflow.com/questions/4702036/take-n-random-elements-from-a-liste">Stack Overflow</a>
+     * @see #uniqueRandomSelection(List, int, RandomSource) for a version which does not mutate the list.
      *
      * @param list the list to sample from.
      * @param n    the number of elements to select.
@@ -1165,6 +1417,65 @@ public class Helpers
         return list.subList(length - n, length);
     }
 
+    /**
+     * Select N unique elements from a list, without mutating or copying the list. Only the selected indices are generated, using
+     * {@link MathHelpers#uniqueRandomIndices(int, int, RandomSource, int[])}, so this is suitable for sampling from large, shared lists such as tag contents.
+     * The list should support fast random access.
+     *
+     * @param list the list to sample from.
+     * @param n    the number of elements to select.
+     * @param r    a random source.
+     * @param <T>  the type of the list.
+     * @return     a new, immutable list of n unique elements selected from the original list.
+     * @throws     IllegalArgumentException if n is greater than the list size.
+     */
+    public static <T> List<T> uniqueRandomSelection(List<T> list, int n, RandomSource r)
+    {
+        final int[] indices = MathHelpers.uniqueRandomIndices(list.size(), n, r);
+        final ImmutableList.Builder<T> builder = ImmutableList.builderWithExpectedSize(n);
+        for (int index : indices)
+            builder.add(list.get(index));
+        return builder.build();
+    }
+
+    /**
+     * Select N unique elements from an iterable of unknown size in a single pass, using <a href="https://en.wikipedia.org/wiki/Reservoir_sampling">reservoir sampling</a>.
+     * This never copies the source, and only holds the N selected elements, so it is suitable for sampling from streams of tag or registry contents.
+     *
+     * @param source the elements to sample from.
+     * @param n      the number of elements to select.
+     * @param r      a random source.
+     * @param <T>    the type of the elements.
+     * @return       a new list of n unique elements selected from the source.
+     * @throws       IllegalArgumentException if n is greater than the number of elements in the source.
+     */
+    public static <T> List<T> reservoirSample(Iterable<? extends T> source, int n, RandomSource r)
+    {
+        final List<T> reservoir = new ArrayList<>(n);
+        int seen = 0;
+        for (T element : source)
+        {
+            if (seen < n)
+            {
+                reservoir.add(element);
+            }
+            else
+            {
+                final int index = r.nextInt(seen + 1);
+                if (index < n)
+                {
+                    reservoir.set(index, element);
+                }
+            }
+            seen++;
+        }
+        if (seen < n)
+        {
+            throw new IllegalArgumentException("Cannot select n=" + n + " unique elements from a source of size " + seen);
+        }
+        return reservoir;
+    }
+
     /**
      * Given a list containing {@code [a0, ... aN]} and an element {@code aN+1}, returns a new, immutable list containing {@code [a0, ... aN, aN+1]},
      * in the most efficient manner that we can manage (a single data copy). This takes advantage that {@link ImmutableList}, along with its
@@ -1261,7 +1572,9 @@ public class Helpers
      */
     public static void copyTo(ImmutableList.Builder<ItemStack> builder, IItemHandler inventory)
     {
-        copyTo(builder, iterate(inventory));
+        final int slots = inventory.getSlots();
+        for (int slot = 0; slot < slots; slot++)
+            builder.add(inventory.getStackInSlot(slot).copy());
     }
 
     /**
@@ -1278,6 +1591,7 @@ public class Helpers
 
     /**
      * Copies the contents of the inventory {@code inventory} into a list, clears the inventory, and returns the list.
+     * For repeated captures, i.e. to roll back a failed operation every tick, prefer a reusable {@link InventorySnapshot}.
      * @see #copyTo
      *
      * @param inventory the inventory to copy from.
@@ -1285,13 +1599,17 @@ public class Helpers
      */
     public static List<ItemStack> copyAndClear(IItemHandlerModifiable inventory)
     {
-        final ImmutableList.Builder<ItemStack> builder = ImmutableList.builder();
-        for (int slot = 0; slot < inventory.getSlots(); slot++)
+        final ItemStack[] stacks = new ItemStack[inventory.getSlots()];
+        for (int slot = 0; slot < stacks.length; slot++)
         {
-            builder.add(inventory.getStackInSlot(slot).copy());
-            inventory.setStackInSlot(slot, ItemStack.EMPTY);
+            final ItemStack stack = inventory.getStackInSlot(slot);
+            stacks[slot] = stack.isEmpty() ? ItemStack.EMPTY : stack.copy();
+            if (!stack.isEmpty())
+            {
+                inventory.setStackInSlot(slot, ItemStack.EMPTY);
+            }
         }
-        return builder.build();
+        return Collections.unmodifiableList(Arrays.asList(stacks));
     }
 
     /**
@@ -1303,8 +1621,9 @@ public class Helpers
      */
     public static void copyFrom(List<ItemStack> list, IItemHandlerModifiable inventory)
     {
-        for (int i = 0; i < Math.min(list.size(), inventory.getSlots()); i++)
-            inventory.setStackInSlot(1, list.get(i).copy());
+        final int slots = Math.min(list.size(), inventory.getSlots());
+        for (int i = 0; i < slots; i++)
+            inventory.setStackInSlot(i, list.get(i).copy());
     }
 
     /**
@@ -1367,20 +1686,20 @@ public class Helpers
      */
     public static boolean isItem(ItemStack stack, TagKey<Item> tag)
     {
-        return stack.is(tag);
+        return isItem(stack.getItem(), tag);
     }
 
     /**
      * Checks if the given Item matches the specified Tag.
+     * @see CachedTag
      *
      * @param item the Item to check
      * @param tag  the Tag to match
      * @return     true if the Item matches the Tag, false otherwise
      */
-    @SuppressWarnings("deprecation")
-    public static boolean isItem(Item item,TagKey<Item> tag)
+    public static boolean isItem(Item item, TagKey<Item> tag)
     {
-        return item.builtInRegistryHolder().is(tag);
+        return CachedTag.of(BuiltInRegistries.ITEM, tag).contains(item);
     }
 
     /**
@@ -1403,7 +1722,7 @@ public class Helpers
      */
     public static Stream<Item> allItems(TagKey<Item> tag)
     {
-        return BuiltInRegistries.ITEM.getOrCreateTag(tag).stream().map(Holder::value);
+        return CachedTag.of(BuiltInRegistries.ITEM, tag).stream();
     }
 
     /**
@@ -1427,20 +1746,20 @@ public class Helpers
      */
     public static boolean isBlock(BlockState state, TagKey<Block> tag)
     {
-        return state.is(tag);
+        return isBlock(state.getBlock(), tag);
     }
 
     /**
      * Checks if the given Block matches the specified Tag.
+     * @see CachedTag
      *
      * @param block the Block to check
      * @param tag   the Tag to match
      * @return      true if the Block matches the Tag, false otherwise
      */
-    @SuppressWarnings("deprecation")
     public static boolean isBlock(Block block, TagKey<Block> tag)
     {
-        return block.builtInRegistryHolder().is(tag);
+        return CachedTag.of(BuiltInRegistries.BLOCK, tag).contains(block);
     }
 
     /**
@@ -1463,7 +1782,7 @@ public class Helpers
      */
     public static Stream<Block> allBlocks(TagKey<Block> tag)
     {
-        return BuiltInRegistries.BLOCK.getOrCreateTag(tag).stream().map(Holder::value);
+        return CachedTag.of(BuiltInRegistries.BLOCK, tag).stream();
     }
 
     /**
@@ -1475,20 +1794,20 @@ public class Helpers
      */
     public static boolean isFluid(FluidState state, TagKey<Fluid> tag)
     {
-        return state.is(tag);
+        return isFluid(state.getType(), tag);
     }
 
     /**
      * Checks if the given Fluid matches the specified Tag.
+     * @see CachedTag
      *
      * @param fluid the Fluid to check
      * @param tag   the Tag to match
      * @return      true if the Fluid matches the Tag, false otherwise
      */
-    @SuppressWarnings("deprecation")
     public static boolean isFluid(Fluid fluid, TagKey<Fluid> tag)
     {
-        return fluid.is(tag);
+        return CachedTag.of(BuiltInRegistries.FLUID, tag).contains(fluid);
     }
 
     /**
@@ -1511,7 +1830,7 @@ public class Helpers
      */
     public static Stream<Fluid> allFluids(TagKey<Fluid> tag)
     {
-        return BuiltInRegistries.FLUID.getOrCreateTag(tag).stream().map(Holder::value);
+        return CachedTag.of(BuiltInRegistries.FLUID, tag).stream();
     }
 
     /**
@@ -1528,6 +1847,7 @@ public class Helpers
 
     /**
      * Checks if the given EntityType matches the specified Tag.
+     * @see CachedTag
      *
      * @param entity the EntityType to check
      * @param tag    the Tag to match
@@ -1535,7 +1855,7 @@ public class Helpers
      */
     public static boolean isEntity(EntityType<?> entity, TagKey<EntityType<?>> tag)
     {
-        return entity.is(tag);
+        return CachedTag.of(BuiltInRegistries.ENTITY_TYPE, tag).contains(entity);
     }
 
     /**
@@ -1573,7 +1893,7 @@ public class Helpers
      */
     private static <T> Optional<T> getRandomElement(Registry<T> registry, TagKey<T> tag, RandomSource random)
     {
-        return registry.getTag(tag).flatMap(set -> set.getRandomElement(random)).map(Holder::value);
+        return Optional.ofNullable(CachedTag.of(registry, tag).random(random));
     }
 
     /**
@@ -0,0 +1,151 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, least recently used cache of ingredient test results, used to incrementally match recipe inputs.
+ * <p>
+ * Results are keyed by the ingredient (by identity) and the item and components of the tested stack (ignoring count). When a crafting inventory changes by one slot,
+ * every other slot hits the cache, so only the changed column of the bipartite graph is actually re-tested against the ingredients.
+ * <p>
+ * Ingredients are expected to be stable instances (i.e. those held by a recipe), and to give the same result for stacks with the same item and components.
+ * Cached results are discarded when tags are reloaded, as those may change what an ingredient accepts. Instances are not thread safe, and are intended to be
+ * owned by a single block entity or menu.
+ */
+public final class IngredientMatchCache
+{
+    /**
+     * Incremented whenever tags are reloaded, which invalidates every cache.
+     */
+    private static volatile int generation = 0;
+
+    /**
+     * Invalidates the results of all caches. Called when tags are reloaded.
+     */
+    public static void invalidateAll()
+    {
+        generation++;
+    }
+
+    private final Map<Key, Boolean> results;
+    private final Key probe = new Key();
+    private final PerfectMatcher matcher = new PerfectMatcher();
+    private final BiPredicate<Predicate<ItemStack>, ItemStack> tester = this::test;
+    private int cachedGeneration = generation;
+
+    /**
+     * @param capacity The maximum number of results cached. A good choice is a small multiple of the number of (ingredient, slot) pairs that are matched.
+     */
+    public IngredientMatchCache(int capacity)
+    {
+        this.results = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Checks if a perfect matching exists between {@code inputs} and {@code ingredients}, using cached results where possible.
+     * @see MathHelpers#perfectMatchExists(List, List)
+     *
+     * @param inputs      The stacks to match.
+     * @param ingredients The ingredients to match.
+     * @return            {@code true} if a perfect matching exists, {@code false} otherwise.
+     */
+    public boolean matches(List<ItemStack> inputs, List<? extends Predicate<ItemStack>> ingredients)
+    {
+        return matches(inputs, ingredients, null);
+    }
+
+    /**
+     * Checks if a perfect matching exists between {@code inputs} and {@code ingredients}, using cached results where possible.
+     * @see PerfectMatcher#match(List, List, int[])
+     *
+     * @param inputs      The stacks to match.
+     * @param ingredients The ingredients to match.
+     * @param assignment  If not {@code null}, and a matching exists, {@code assignment[i]} is set to the index of the input matched to ingredient {@code i}.
+     * @return            {@code true} if a perfect matching exists, {@code false} otherwise.
+     */
+    public boolean matches(List<ItemStack> inputs, List<? extends Predicate<ItemStack>> ingredients, @Nullable int[] assignment)
+    {
+        return matcher.match(inputs, ingredients, tester, assignment);
+    }
+
+    /**
+     * Tests {@code stack} against {@code ingredient}, returning a cached result if the same ingredient has been tested against a stack with the same item and components.
+     *
+     * @param ingredient The ingredient.
+     * @param stack      The stack to test.
+     * @return           {@code ingredient.test(stack)}
+     */
+    public boolean test(Predicate<ItemStack> ingredient, ItemStack stack)
+    {
+        if (cachedGeneration != generation)
+        {
+            cachedGeneration = generation;
+            results.clear();
+        }
+
+        probe.set(ingredient, stack);
+        final Boolean cached = results.get(probe);
+        probe.set(null, ItemStack.EMPTY); // Don't retain the caller's stack
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final boolean result = ingredient.test(stack);
+        final Key key = new Key();
+        key.set(ingredient, stack.copyWithCount(1)); // Copy, as the original stack may be modified after this
+        results.put(key, result);
+        return result;
+    }
+
+    /**
+     * Discards all cached results.
+     */
+    public void clear()
+    {
+        results.clear();
+    }
+
+    /**
+     * A key of (ingredient, item and components). This is mutable so a single instance can be used to probe the cache without allocating.
+     */
+    private static final class Key
+    {
+        private @Nullable Predicate<ItemStack> ingredient;
+        private ItemStack stack = ItemStack.EMPTY;
+        private int hash;
+
+        void set(@Nullable Predicate<ItemStack> ingredient, ItemStack stack)
+        {
+            this.ingredient = ingredient;
+            this.stack = stack;
+            this.hash = 31 * System.identityHashCode(ingredient) + ItemStack.hashItemAndComponents(stack);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Key other && other.ingredient == ingredient && ItemStack.isSameItemSameComponents(other.stack, stack);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
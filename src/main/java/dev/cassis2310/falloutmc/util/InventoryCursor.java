@@ -0,0 +1,134 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.RecipeInput;
+import net.neoforged.neoforge.items.IItemHandler;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable iterator over the slots of an inventory. Unlike {@link Helpers#iterate(IItemHandler)}, which allocates a new iterator on every call,
+ * a cursor is held on to (i.e. as a field of a block entity) and pointed at an inventory each time it is needed:
+ * <pre>{@code
+ * for (ItemStack stack : cursor.of(inventory))
+ * {
+ *     ...
+ * }
+ * }</pre>
+ * A cursor is not thread safe, and may only be used for one iteration at a time.
+ */
+public final class InventoryCursor implements Iterable<ItemStack>, Iterator<ItemStack>
+{
+    private @Nullable IItemHandler handler;
+    private @Nullable RecipeInput input;
+    private int start, end, slot;
+
+    /**
+     * Points this cursor at all slots of {@code inventory}.
+     *
+     * @param inventory The inventory to iterate over.
+     * @return          This cursor.
+     */
+    public InventoryCursor of(IItemHandler inventory)
+    {
+        return of(inventory, 0, inventory.getSlots());
+    }
+
+    /**
+     * Points this cursor at a range of slots of {@code inventory}.
+     *
+     * @param inventory          The inventory to iterate over.
+     * @param startSlotInclusive The starting slot (inclusive).
+     * @param endSlotExclusive   The ending slot (exclusive).
+     * @return                   This cursor.
+     */
+    public InventoryCursor of(IItemHandler inventory, int startSlotInclusive, int endSlotExclusive)
+    {
+        this.handler = inventory;
+        this.input = null;
+        return reset(startSlotInclusive, endSlotExclusive);
+    }
+
+    /**
+     * Points this cursor at all slots of {@code inventory}.
+     *
+     * @param inventory The recipe input to iterate over.
+     * @return          This cursor.
+     */
+    public InventoryCursor of(RecipeInput inventory)
+    {
+        this.handler = null;
+        this.input = inventory;
+        return reset(0, inventory.size());
+    }
+
+    /**
+     * @return The slot of the stack last returned by {@link #next()}.
+     */
+    public int slot()
+    {
+        return slot - 1;
+    }
+
+    /**
+     * Returns this cursor, rewound to the start of its slot range, so it can be used in an enhanced for loop.
+     */
+    @Override
+    public Iterator<ItemStack> iterator()
+    {
+        slot = start;
+        return this;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return slot < end;
+    }
+
+    @Override
+    public ItemStack next()
+    {
+        if (slot >= end)
+        {
+            throw new NoSuchElementException();
+        }
+        final int current = slot++;
+        if (handler != null)
+        {
+            return handler.getStackInSlot(current);
+        }
+        assert input != null;
+        return input.getItem(current);
+    }
+
+    @Override
+    public void remove()
+    {
+        if (handler == null)
+        {
+            throw new UnsupportedOperationException("Cannot remove from a recipe input");
+        }
+        Helpers.removeStack(handler, slot - 1);
+    }
+
+    /**
+     * Releases the inventory this cursor points to, so a cursor held on to does not keep it reachable.
+     */
+    public void clear()
+    {
+        handler = null;
+        input = null;
+        start = end = slot = 0;
+    }
+
+    private InventoryCursor reset(int start, int end)
+    {
+        this.start = start;
+        this.end = end;
+        this.slot = start;
+        return this;
+    }
+}
@@ -0,0 +1,157 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.items.IItemHandler;
+import net.neoforged.neoforge.items.IItemHandlerModifiable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A copy of the contents of an inventory, which can be restored later, or compared against the inventory's current contents.
+ * Intended for transactional operations, i.e. try a craft, and roll back if it fails:
+ * <pre>{@code
+ * snapshot.capture(inventory);
+ * if (!tryCraft(inventory))
+ * {
+ *     snapshot.restore(inventory);
+ * }
+ * }</pre>
+ * A snapshot is reusable: its buffer only ever grows, so holding on to one (i.e. as a field of a block entity) and capturing every tick allocates
+ * nothing but the copies of non-empty stacks. Restoring only touches slots whose contents differ from the snapshot.
+ * <p>
+ * A snapshot is not thread safe.
+ */
+public final class InventorySnapshot
+{
+    private ItemStack[] stacks = new ItemStack[0];
+    private int size = 0;
+
+    /**
+     * Captures the contents of {@code inventory}, replacing anything previously captured.
+     *
+     * @param inventory The inventory to capture.
+     * @return          This snapshot.
+     */
+    public InventorySnapshot capture(IItemHandler inventory)
+    {
+        final int slots = inventory.getSlots();
+        if (stacks.length < slots)
+        {
+            stacks = new ItemStack[Math.max(slots, stacks.length * 2)];
+        }
+        for (int slot = 0; slot < slots; slot++)
+        {
+            final ItemStack stack = inventory.getStackInSlot(slot);
+            stacks[slot] = stack.isEmpty() ? ItemStack.EMPTY : stack.copy();
+        }
+        // Release references to stacks from a previous, larger capture
+        if (size > slots)
+        {
+            Arrays.fill(stacks, slots, size, null);
+        }
+        size = slots;
+        return this;
+    }
+
+    /**
+     * Restores the captured contents into {@code inventory}. Only slots whose current contents differ from the snapshot are set.
+     * The snapshot is unchanged, so it may be restored again.
+     *
+     * @param inventory The inventory to restore into. This should be the inventory which was captured, or one of the same size.
+     */
+    public void restore(IItemHandlerModifiable inventory)
+    {
+        final int slots = Math.min(size, inventory.getSlots());
+        for (int slot = 0; slot < slots; slot++)
+        {
+            final ItemStack captured = stacks[slot];
+            if (!ItemStack.matches(captured, inventory.getStackInSlot(slot)))
+            {
+                inventory.setStackInSlot(slot, captured.copy());
+            }
+        }
+    }
+
+    /**
+     * Calls {@code action} for every slot whose current contents in {@code inventory} differ from the snapshot.
+     *
+     * @param inventory The inventory to compare against.
+     * @param action    Called with the slot, and the captured stack in that slot, which must not be modified.
+     * @return          The number of slots which differ.
+     */
+    public int diff(IItemHandler inventory, SlotConsumer action)
+    {
+        final int slots = Math.min(size, inventory.getSlots());
+        int changed = 0;
+        for (int slot = 0; slot < slots; slot++)
+        {
+            if (!ItemStack.matches(stacks[slot], inventory.getStackInSlot(slot)))
+            {
+                action.accept(slot, stacks[slot]);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param inventory The inventory to compare against.
+     * @return          {@code true} if the current contents of {@code inventory} are identical to the snapshot.
+     */
+    public boolean matches(IItemHandler inventory)
+    {
+        if (inventory.getSlots() != size)
+        {
+            return false;
+        }
+        for (int slot = 0; slot < size; slot++)
+        {
+            if (!ItemStack.matches(stacks[slot], inventory.getStackInSlot(slot)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param slot The slot.
+     * @return     The captured stack in {@code slot}, which must not be modified.
+     */
+    public ItemStack get(int slot)
+    {
+        return stacks[slot];
+    }
+
+    /**
+     * @return The number of slots captured.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return An unmodifiable list of copies of the captured stacks.
+     */
+    public List<ItemStack> toList()
+    {
+        final ItemStack[] copies = new ItemStack[size];
+        for (int slot = 0; slot < size; slot++)
+        {
+            copies[slot] = stacks[slot].copy();
+        }
+        return Collections.unmodifiableList(Arrays.asList(copies));
+    }
+
+    /**
+     * Releases all captured stacks, keeping the buffer for reuse.
+     */
+    public void clear()
+    {
+        Arrays.fill(stacks, 0, size, null);
+        size = 0;
+    }
+}
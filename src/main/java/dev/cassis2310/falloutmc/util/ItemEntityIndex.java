@@ -0,0 +1,239 @@
+package dev.cassis2310.falloutmc.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.phys.AABB;
+import net.neoforged.neoforge.items.IItemHandler;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An index of the item entities in a server level, keyed by the section they are in. Item entities are added and removed as they join and leave the
+ * level, and moved as they cross section boundaries, so finding the items within a box only visits the sections overlapping that box, and only looks
+ * at item entities, rather than going through the level's entity lookup (and every other entity in those sections) each time.
+ * <p>
+ * Collectors (i.e. vacuum blocks) which only need to gather once per tick should {@link #requestGather queue} their gather, rather than gathering
+ * immediately. All queued gathers in a level are then processed together at the end of the level tick.
+ * <p>
+ * All methods must be called on the server thread.
+ */
+public final class ItemEntityIndex
+{
+    private static final Map<Level, ItemEntityIndex> INDEXES = new IdentityHashMap<>();
+
+    /**
+     * @param level The level.
+     * @return      The index for {@code level}, or {@code null} if it is not a server level, and so is not indexed.
+     */
+    @Nullable
+    public static ItemEntityIndex get(Level level)
+    {
+        return level instanceof ServerLevel ? INDEXES.computeIfAbsent(level, key -> new ItemEntityIndex()) : null;
+    }
+
+    /**
+     * Called when an entity joins a level.
+     */
+    public static void onJoin(Entity entity, Level level)
+    {
+        if (entity instanceof ItemEntity item && level instanceof ServerLevel)
+        {
+            final ItemEntityIndex index = get(level);
+            if (index != null)
+            {
+                index.add(item, SectionPos.asLong(item.blockPosition()));
+            }
+        }
+    }
+
+    /**
+     * Called when an entity leaves a level, either by being removed, or unloaded.
+     */
+    public static void onLeave(Entity entity, Level level)
+    {
+        if (entity instanceof ItemEntity item && level instanceof ServerLevel)
+        {
+            final ItemEntityIndex index = INDEXES.get(level);
+            if (index != null)
+            {
+                index.remove(item);
+            }
+        }
+    }
+
+    /**
+     * Called when an entity moves from one section to another.
+     */
+    public static void onMove(Entity entity, long newSection)
+    {
+        if (entity instanceof ItemEntity item && item.level() instanceof ServerLevel)
+        {
+            final ItemEntityIndex index = INDEXES.get(item.level());
+            if (index != null && index.sectionByEntity.containsKey(item))
+            {
+                index.remove(item);
+                index.add(item, newSection);
+            }
+        }
+    }
+
+    /**
+     * Called at the end of each level tick, to process all queued gathers.
+     */
+    public static void onLevelTick(Level level)
+    {
+        final ItemEntityIndex index = INDEXES.get(level);
+        if (index != null)
+        {
+            index.processRequests();
+        }
+    }
+
+    /**
+     * Called when a level is unloaded.
+     */
+    public static void onUnload(Level level)
+    {
+        INDEXES.remove(level);
+    }
+
+    private final Long2ObjectMap<List<ItemEntity>> entitiesBySection = new Long2ObjectOpenHashMap<>();
+    private final Object2LongMap<ItemEntity> sectionByEntity = new Object2LongOpenHashMap<>();
+    private final List<GatherRequest> requests = new ArrayList<>();
+
+    private ItemEntityIndex() {}
+
+    /**
+     * Finds all living item entities whose bounding box intersects {@code bounds}.
+     *
+     * @param bounds The bounding box to search within.
+     * @return       A new list of the item entities found.
+     */
+    public List<ItemEntity> getItems(AABB bounds)
+    {
+        final List<ItemEntity> found = new ArrayList<>();
+        forEachSection(bounds, entities -> {
+            for (ItemEntity entity : entities)
+            {
+                if (entity.isAlive() && entity.getBoundingBox().intersects(bounds))
+                {
+                    found.add(entity);
+                }
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Queues a gather of the items within {@code bounds} into {@code inventory}, which is performed at the end of the current level tick.
+     * This has the same semantics as {@link Helpers#gatherAndConsumeItems(Level, AABB, IItemHandler, int, int, int)}, except that the gather
+     * is skipped if {@code owner} has been removed by then, as its inventory may no longer be valid.
+     *
+     * @param owner            The block entity which owns {@code inventory}.
+     * @param bounds           The bounding box within which to gather items.
+     * @param inventory        The inventory to store gathered items.
+     * @param minSlotInclusive The starting slot (inclusive) for storing items in the inventory.
+     * @param maxSlotInclusive The ending slot (inclusive) for storing items in the inventory.
+     * @param maxItemsOverride The maximum number of items to be gathered.
+     */
+    public void requestGather(BlockEntity owner, AABB bounds, IItemHandler inventory, int minSlotInclusive, int maxSlotInclusive, int maxItemsOverride)
+    {
+        requests.add(new GatherRequest(owner, bounds, inventory, minSlotInclusive, maxSlotInclusive, maxItemsOverride));
+    }
+
+    /**
+     * @return The number of item entities in the index.
+     */
+    public int size()
+    {
+        return sectionByEntity.size();
+    }
+
+    private void processRequests()
+    {
+        if (requests.isEmpty())
+        {
+            return;
+        }
+        // Requests may be queued while processing (i.e. by an inventory change callback), which are left for the next tick
+        final List<GatherRequest> pending = List.copyOf(requests);
+        requests.clear();
+        for (GatherRequest request : pending)
+        {
+            if (request.owner.isRemoved())
+            {
+                // The owner was broken or unloaded later in the tick, so its inventory must not be filled
+                continue;
+            }
+            // Earlier requests may have consumed entities, which are skipped as they are no longer alive
+            Helpers.gatherAndConsumeItems(getItems(request.bounds), request.inventory, request.minSlotInclusive, request.maxSlotInclusive, request.maxItemsOverride);
+        }
+    }
+
+    private void forEachSection(AABB bounds, Consumer<List<ItemEntity>> action)
+    {
+        // Expanded by one block, as an item entity's bounding box may extend past the section containing its position
+        final int minX = SectionPos.blockToSectionCoord(Mth.floor(bounds.minX - 1)), maxX = SectionPos.blockToSectionCoord(Mth.floor(bounds.maxX + 1));
+        final int minY = SectionPos.blockToSectionCoord(Mth.floor(bounds.minY - 1)), maxY = SectionPos.blockToSectionCoord(Mth.floor(bounds.maxY + 1));
+        final int minZ = SectionPos.blockToSectionCoord(Mth.floor(bounds.minZ - 1)), maxZ = SectionPos.blockToSectionCoord(Mth.floor(bounds.maxZ + 1));
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                for (int y = minY; y <= maxY; y++)
+                {
+                    final List<ItemEntity> entities = entitiesBySection.get(SectionPos.asLong(x, y, z));
+                    if (entities != null)
+                    {
+                        action.accept(entities);
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(ItemEntity entity, long section)
+    {
+        if (sectionByEntity.containsKey(entity))
+        {
+            return;
+        }
+        sectionByEntity.put(entity, section);
+        entitiesBySection.computeIfAbsent(section, key -> new ObjectArrayList<>(4)).add(entity);
+    }
+
+    private void remove(ItemEntity entity)
+    {
+        if (!sectionByEntity.containsKey(entity))
+        {
+            return;
+        }
+        final long section = sectionByEntity.removeLong(entity);
+        final List<ItemEntity> entities = entitiesBySection.get(section);
+        if (entities != null)
+        {
+            entities.remove(entity);
+            if (entities.isEmpty())
+            {
+                entitiesBySection.remove(section);
+            }
+        }
+    }
+
+    private record GatherRequest(BlockEntity owner, AABB bounds, IItemHandler inventory, int minSlotInclusive, int maxSlotInclusive, int maxItemsOverride) {}
+}
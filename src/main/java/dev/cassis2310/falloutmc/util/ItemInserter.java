@@ -0,0 +1,186 @@
+package dev.cassis2310.falloutmc.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.ItemStackLinkedSet;
+import net.neoforged.neoforge.items.IItemHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts many stacks into a range of slots of an inventory at once. Where {@link Helpers#insertSlots(IItemHandler, ItemStack, int, int)} offers
+ * each stack to every slot in turn, this scans the slot range once, and builds an index from each item (and its components) to the slots which
+ * already hold it. Each stack is then merged into those slots first, and only afterward into empty slots, so slots holding unrelated items are never tried.
+ * <p>
+ * When simulating, the inventory is not modified, so the space remaining in each slot is tracked by the inserter instead. This means simulating
+ * many stacks gives the same result as executing them, even if several stacks would go into the same slot.
+ */
+public final class ItemInserter
+{
+    /**
+     * Inserts each of {@code stacks} into the slots {@code [slotStartInclusive, slotEndExclusive)} of {@code inventory}, in order.
+     * The stacks themselves are not modified.
+     *
+     * @param inventory          The inventory to insert into.
+     * @param stacks             The stacks to insert.
+     * @param slotStartInclusive The starting slot index (inclusive).
+     * @param slotEndExclusive   The ending slot index (exclusive).
+     * @param simulate           If {@code true}, the inventory is not modified.
+     * @return                   The remainders, one per stack in {@code stacks}, and in the same order. Each is {@code ItemStack.EMPTY} if the stack was fully inserted.
+     */
+    public static List<ItemStack> insert(IItemHandler inventory, List<ItemStack> stacks, int slotStartInclusive, int slotEndExclusive, boolean simulate)
+    {
+        final ItemInserter inserter = new ItemInserter(inventory, slotStartInclusive, slotEndExclusive, simulate);
+        final List<ItemStack> remainders = new ArrayList<>(stacks.size());
+        for (ItemStack stack : stacks)
+        {
+            remainders.add(inserter.insert(stack));
+        }
+        return remainders;
+    }
+
+    private final IItemHandler inventory;
+    private final int slotStart;
+    private final boolean simulate;
+
+    private final Object2ObjectOpenCustomHashMap<ItemStack, IntArrayList> slotsByItem = new Object2ObjectOpenCustomHashMap<>(ItemStackLinkedSet.TYPE_AND_TAG);
+    private final IntArrayList emptySlots = new IntArrayList();
+    private final Object2ObjectOpenCustomHashMap<ItemStack, IntSet> rejectedSlotsByItem = new Object2ObjectOpenCustomHashMap<>(ItemStackLinkedSet.TYPE_AND_TAG);
+    private final boolean[] full;
+    private final int[] space; // Only used when simulating: the number of items each slot can still accept, or -1 if not yet known
+
+    private ItemInserter(IItemHandler inventory, int slotStartInclusive, int slotEndExclusive, boolean simulate)
+    {
+        this.inventory = inventory;
+        this.slotStart = slotStartInclusive;
+        this.simulate = simulate;
+
+        final int size = Math.max(0, slotEndExclusive - slotStartInclusive);
+        this.full = new boolean[size];
+        this.space = simulate ? new int[size] : null;
+
+        for (int slot = slotStartInclusive; slot < slotEndExclusive; slot++)
+        {
+            final ItemStack stack = inventory.getStackInSlot(slot);
+            if (stack.isEmpty())
+            {
+                emptySlots.add(slot);
+            }
+            else
+            {
+                IntArrayList slots = slotsByItem.get(stack);
+                if (slots == null)
+                {
+                    // The key is copied, as the stack in the slot may be modified by insertions
+                    slots = new IntArrayList(4);
+                    slotsByItem.put(stack.copyWithCount(1), slots);
+                }
+                slots.add(slot);
+            }
+            if (simulate)
+            {
+                space[slot - slotStartInclusive] = -1;
+            }
+        }
+    }
+
+    private ItemStack insert(ItemStack stack)
+    {
+        if (stack.isEmpty())
+        {
+            return ItemStack.EMPTY;
+        }
+
+        // Merge into slots already holding this item. When executing, the caller's stack is copied, as inventories may store the inserted instance
+        ItemStack remainder = simulate ? stack : stack.copy();
+        IntArrayList slots = slotsByItem.get(stack);
+        if (slots != null)
+        {
+            for (int i = 0; i < slots.size(); i++)
+            {
+                final int slot = slots.getInt(i);
+                if (!full[slot - slotStart])
+                {
+                    remainder = insertInto(slot, remainder);
+                    if (remainder.isEmpty())
+                    {
+                        return ItemStack.EMPTY;
+                    }
+                    full[slot - slotStart] = true;
+                }
+            }
+        }
+
+        // Then fill empty slots, which from then on hold this item. Slots which already rejected this item are not offered it again
+        IntSet rejected = rejectedSlotsByItem.get(stack);
+        for (int i = 0; i < emptySlots.size(); )
+        {
+            final int slot = emptySlots.getInt(i);
+            if (rejected != null && rejected.contains(slot))
+            {
+                i++;
+                continue;
+            }
+            final int count = remainder.getCount();
+            remainder = insertInto(slot, remainder);
+            if (remainder.getCount() == count)
+            {
+                // The slot does not accept this item, but it may accept others
+                if (simulate)
+                {
+                    space[slot - slotStart] = -1;
+                }
+                if (rejected == null)
+                {
+                    rejected = new IntOpenHashSet();
+                    rejectedSlotsByItem.put(stack.copyWithCount(1), rejected);
+                }
+                rejected.add(slot);
+                i++;
+                continue;
+            }
+
+            emptySlots.removeInt(i);
+            if (slots == null)
+            {
+                slots = new IntArrayList(4);
+                slotsByItem.put(stack.copyWithCount(1), slots);
+            }
+            slots.add(slot);
+            if (remainder.isEmpty())
+            {
+                return ItemStack.EMPTY;
+            }
+            full[slot - slotStart] = true;
+        }
+        return remainder;
+    }
+
+    /**
+     * Inserts as much of {@code stack} as possible into {@code slot}. Callers mark the slot as full if not all of it was accepted, unless the slot
+     * was empty, and accepted none of it, in which case it only rejected this item.
+     */
+    private ItemStack insertInto(int slot, ItemStack stack)
+    {
+        final int index = slot - slotStart;
+        if (!simulate)
+        {
+            return inventory.insertItem(slot, stack, false);
+        }
+
+        if (space[index] < 0)
+        {
+            // Measure how much the slot can accept in total, by offering more than it could possibly hold
+            final int offered = Math.max(inventory.getSlotLimit(slot), stack.getMaxStackSize());
+            space[index] = offered - inventory.insertItem(slot, stack.copyWithCount(offered), true).getCount();
+        }
+
+        final int accepted = Math.min(space[index], stack.getCount());
+        space[index] -= accepted;
+        return accepted == stack.getCount() ? ItemStack.EMPTY : stack.copyWithCount(stack.getCount() - accepted);
+    }
+}
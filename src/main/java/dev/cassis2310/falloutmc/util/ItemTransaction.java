@@ -0,0 +1,348 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.items.IItemHandler;
+import net.neoforged.neoforge.items.IItemHandlerModifiable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A set of planned insertions and extractions across any number of inventories, which either all succeed, or none do.
+ * <p>
+ * Operations are recorded with {@link #insert} and {@link #extract}, and then resolved to individual slots in a single simulated pass, which keeps
+ * an overlay of each inventory's contents, so later operations see the effects of earlier ones (i.e. inserting into a slot which an earlier
+ * operation emptied). The first time a slot is used, the inventory's own simulation is asked; after that, the overlay is used.
+ * <p>
+ * {@link #commit()} then executes the resolved operations. If an inventory does not behave as it simulated, every inventory is rolled back to
+ * its contents before the commit. This requires every inventory to be an {@link IItemHandlerModifiable}: a transaction involving any other
+ * inventory cannot be rolled back, so it never simulates successfully, and is never committed.
+ * <p>
+ * A transaction may be {@link #reset()} and reused, i.e. once per tick. After a commit, it is simulated again before it can be committed again.
+ */
+public final class ItemTransaction
+{
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<Move> moves = new ArrayList<>();
+    private final Map<IItemHandler, Overlay> overlays = new IdentityHashMap<>();
+    private final Map<IItemHandler, InventorySnapshot> snapshots = new IdentityHashMap<>();
+    private final List<ItemStack> extracted = new ArrayList<>();
+    private boolean resolved = false, valid = false;
+
+    /**
+     * Plans inserting {@code stack} into all slots of {@code inventory}. The stack may be larger than its maximum stack size, in which case it is
+     * spread across several slots.
+     *
+     * @param inventory The inventory to insert into.
+     * @param stack     The stack to insert. This is copied.
+     * @return          This transaction.
+     */
+    public ItemTransaction insert(IItemHandler inventory, ItemStack stack)
+    {
+        return insert(inventory, stack, 0, inventory.getSlots());
+    }
+
+    /**
+     * Plans inserting {@code stack} into a range of slots of {@code inventory}.
+     *
+     * @param inventory          The inventory to insert into.
+     * @param stack              The stack to insert. This is copied.
+     * @param slotStartInclusive The starting slot index (inclusive).
+     * @param slotEndExclusive   The ending slot index (exclusive).
+     * @return                   This transaction.
+     */
+    public ItemTransaction insert(IItemHandler inventory, ItemStack stack, int slotStartInclusive, int slotEndExclusive)
+    {
+        if (!stack.isEmpty())
+        {
+            add(new Operation(inventory, stack.copy(), null, slotStartInclusive, slotEndExclusive, stack.getCount()));
+        }
+        return this;
+    }
+
+    /**
+     * Plans extracting {@code amount} items from a single slot of {@code inventory}.
+     *
+     * @param inventory The inventory to extract from.
+     * @param slot      The slot.
+     * @param amount    The number of items to extract.
+     * @return          This transaction.
+     */
+    public ItemTransaction extract(IItemHandler inventory, int slot, int amount)
+    {
+        if (amount > 0)
+        {
+            add(new Operation(inventory, null, null, slot, slot + 1, amount));
+        }
+        return this;
+    }
+
+    /**
+     * Plans extracting {@code amount} items matching {@code filter}, from any slots of {@code inventory}, in slot order.
+     *
+     * @param inventory The inventory to extract from.
+     * @param filter    Which stacks may be extracted from.
+     * @param amount    The total number of items to extract.
+     * @return          This transaction.
+     */
+    public ItemTransaction extract(IItemHandler inventory, Predicate<ItemStack> filter, int amount)
+    {
+        if (amount > 0)
+        {
+            add(new Operation(inventory, null, filter, 0, inventory.getSlots(), amount));
+        }
+        return this;
+    }
+
+    /**
+     * Resolves every planned operation to individual slots, without modifying any inventory.
+     *
+     * @return {@code true} if every operation can be completed in full.
+     */
+    public boolean simulate()
+    {
+        if (!resolved)
+        {
+            resolved = true;
+            valid = resolve();
+        }
+        return valid;
+    }
+
+    /**
+     * Executes every planned operation, if they can all be completed in full.
+     *
+     * @return {@code true} if the transaction was committed. If {@code false}, no inventory was modified, or all modifiable inventories were rolled back.
+     */
+    public boolean commit()
+    {
+        if (!simulate())
+        {
+            return false;
+        }
+
+        for (IItemHandler inventory : overlays.keySet())
+        {
+            snapshots.computeIfAbsent(inventory, key -> new InventorySnapshot()).capture(inventory);
+        }
+
+        extracted.clear();
+        for (Move move : moves)
+        {
+            if (move.insert != null)
+            {
+                if (!move.inventory.insertItem(move.slot, move.insert.copy(), false).isEmpty())
+                {
+                    rollback();
+                    return false;
+                }
+            }
+            else
+            {
+                final ItemStack stack = move.inventory.extractItem(move.slot, move.amount, false);
+                extracted.add(stack);
+                if (stack.getCount() != move.amount)
+                {
+                    rollback();
+                    return false;
+                }
+            }
+        }
+        releaseSnapshots();
+        // The inventories have changed, so the resolved moves no longer apply
+        resolved = false;
+        return true;
+    }
+
+    /**
+     * @return The stacks extracted by the last successful {@link #commit()}, in the order they were extracted.
+     */
+    public List<ItemStack> getExtracted()
+    {
+        return extracted;
+    }
+
+    /**
+     * Discards all planned operations and results, so this transaction can be reused.
+     */
+    public void reset()
+    {
+        operations.clear();
+        moves.clear();
+        overlays.clear();
+        extracted.clear();
+        releaseSnapshots();
+        resolved = valid = false;
+    }
+
+    private void add(Operation operation)
+    {
+        operations.add(operation);
+        resolved = false;
+    }
+
+    private boolean resolve()
+    {
+        moves.clear();
+        overlays.clear();
+        for (Operation operation : operations)
+        {
+            if (!(operation.inventory instanceof IItemHandlerModifiable))
+            {
+                // Cannot be rolled back, so the transaction cannot be atomic
+                return false;
+            }
+            final Overlay overlay = overlays.computeIfAbsent(operation.inventory, Overlay::new);
+            int remaining = operation.amount;
+            for (int slot = operation.start; slot < operation.end && remaining > 0; slot++)
+            {
+                final int moved;
+                if (operation.insert != null)
+                {
+                    moved = overlay.insert(slot, operation.insert, remaining);
+                    if (moved > 0)
+                    {
+                        moves.add(new Move(operation.inventory, slot, operation.insert.copyWithCount(moved), moved));
+                    }
+                }
+                else
+                {
+                    // Extraction is limited per call, so a slot may need several moves
+                    int extracted = 0, step;
+                    do
+                    {
+                        step = overlay.extract(slot, operation.filter, remaining - extracted);
+                        if (step > 0)
+                        {
+                            moves.add(new Move(operation.inventory, slot, null, step));
+                            extracted += step;
+                        }
+                    } while (step > 0 && extracted < remaining);
+                    moved = extracted;
+                }
+                remaining -= moved;
+            }
+            if (remaining > 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rollback()
+    {
+        for (Map.Entry<IItemHandler, InventorySnapshot> entry : snapshots.entrySet())
+        {
+            if (entry.getValue().size() > 0)
+            {
+                entry.getValue().restore((IItemHandlerModifiable) entry.getKey());
+            }
+        }
+        extracted.clear();
+        releaseSnapshots();
+        // An inventory did not behave as simulated, so simulate again before retrying
+        resolved = false;
+    }
+
+    private void releaseSnapshots()
+    {
+        for (InventorySnapshot snapshot : snapshots.values())
+        {
+            snapshot.clear();
+        }
+    }
+
+    /**
+     * A planned operation, either an insertion ({@code insert} is not null), or an extraction.
+     */
+    private record Operation(IItemHandler inventory, @Nullable ItemStack insert, @Nullable Predicate<ItemStack> filter, int start, int end, int amount) {}
+
+    /**
+     * A resolved operation on a single slot.
+     */
+    private record Move(IItemHandler inventory, int slot, @Nullable ItemStack insert, int amount) {}
+
+    /**
+     * The simulated contents of an inventory. A slot is only copied from the inventory once an operation has changed it.
+     */
+    private static final class Overlay
+    {
+        private final IItemHandler inventory;
+        private final ItemStack[] stacks;
+
+        Overlay(IItemHandler inventory)
+        {
+            this.inventory = inventory;
+            this.stacks = new ItemStack[inventory.getSlots()];
+        }
+
+        int insert(int slot, ItemStack stack, int count)
+        {
+            final ItemStack current = stacks[slot];
+            if (current == null)
+            {
+                // Untouched, so the inventory's own simulation is exact
+                final int offered = Math.min(count, Math.max(inventory.getSlotLimit(slot), stack.getMaxStackSize()));
+                final int moved = offered - inventory.insertItem(slot, stack.copyWithCount(offered), true).getCount();
+                if (moved > 0)
+                {
+                    stacks[slot] = combine(inventory.getStackInSlot(slot), stack, moved);
+                }
+                return moved;
+            }
+
+            final int limit = Math.min(inventory.getSlotLimit(slot), stack.getMaxStackSize());
+            if (current.isEmpty())
+            {
+                if (!inventory.isItemValid(slot, stack))
+                {
+                    return 0;
+                }
+            }
+            else if (!ItemStack.isSameItemSameComponents(current, stack))
+            {
+                return 0;
+            }
+            final int moved = Math.max(0, Math.min(count, limit - current.getCount()));
+            if (moved > 0)
+            {
+                stacks[slot] = combine(current, stack, moved);
+            }
+            return moved;
+        }
+
+        int extract(int slot, @Nullable Predicate<ItemStack> filter, int count)
+        {
+            ItemStack current = stacks[slot];
+            final boolean untouched = current == null;
+            if (untouched)
+            {
+                current = inventory.getStackInSlot(slot);
+            }
+            if (current.isEmpty() || (filter != null && !filter.test(current)))
+            {
+                return 0;
+            }
+
+            // As with insertion, a single extraction is limited to the max stack size
+            final int moved = untouched
+                ? inventory.extractItem(slot, count, true).getCount()
+                : Math.min(current.getMaxStackSize(), Math.min(count, current.getCount()));
+            if (moved > 0)
+            {
+                stacks[slot] = current.copyWithCount(current.getCount() - moved);
+            }
+            return moved;
+        }
+
+        private static ItemStack combine(ItemStack current, ItemStack stack, int moved)
+        {
+            return current.isEmpty() ? stack.copyWithCount(moved) : current.copyWithCount(current.getCount() + moved);
+        }
+    }
+}
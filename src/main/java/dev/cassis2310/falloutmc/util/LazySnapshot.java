@@ -0,0 +1,65 @@
+package dev.cassis2310.falloutmc.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A value which is built lazily from some mutable source, on first access, and rebuilt on the next access after {@link #invalidate()}.
+ * Access and invalidation are both thread safe.
+ * <p>
+ * Each invalidation increments a generation counter. The generation is captured before building, and stored alongside the built value, so:
+ * <ul>
+ *     <li>A value built from a source which is invalidated part way through the build is returned to its caller, but never published.</li>
+ *     <li>A value published just before an invalidation has a stale generation, so it is rebuilt by the next access, rather than kept.</li>
+ * </ul>
+ * If two threads build at once within the same generation, both build an equivalent value, and either may be kept.
+ *
+ * @param <T> The type of the value, which should be immutable once built.
+ */
+public final class LazySnapshot<T>
+{
+    private final Supplier<T> builder;
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile @Nullable Built<T> built = null;
+
+    /**
+     * @param builder Builds the value from the current contents of the source.
+     */
+    public LazySnapshot(Supplier<T> builder)
+    {
+        this.builder = builder;
+    }
+
+    /**
+     * @return The current value, building it if there is none, or it was invalidated.
+     */
+    public T get()
+    {
+        final Built<T> built = this.built;
+        final int generation = this.generation.get();
+        if (built != null && built.generation == generation)
+        {
+            return built.value;
+        }
+
+        final T value = builder.get();
+        if (this.generation.get() == generation)
+        {
+            this.built = new Built<>(generation, value);
+        }
+        return value;
+    }
+
+    /**
+     * Discards the current value, which will be rebuilt on the next access. Must be called when the source is modified.
+     */
+    public void invalidate()
+    {
+        generation.incrementAndGet();
+        built = null;
+    }
+
+    private record Built<T>(int generation, T value) {}
+}
@@ -5,7 +5,10 @@ import net.minecraft.util.Mth;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
 
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.function.Predicate;
 
@@ -109,6 +112,107 @@ public class MathHelpers
         return (int) hash;
     }
 
+    /**
+     * Computes {@link #hash(long, int, int, int)} for every position in a 16 x {@code height} x 16 region starting at ({@code minX}, {@code minY}, {@code minZ}),
+     * i.e. a chunk section when {@code height} is 16. Hashes are written in the same order as chunk section storage, {@code index = (y * 16 + z) * 16 + x}.
+     * <p>
+     * This produces exactly the same values as the scalar hash. As the result is truncated to an {@code int}, only the low 32 bits of each term matter, so
+     * the whole computation is done in {@code int} arithmetic, with the y and z terms hoisted out of the inner loop, which the JIT is able to vectorize.
+     *
+     * @param salt   the salt value
+     * @param minX   the minimum x-coordinate
+     * @param minY   the minimum y-coordinate
+     * @param minZ   the minimum z-coordinate
+     * @param height the number of y levels to hash
+     * @param out    the array to write to, of length at least {@code 256 * height}
+     */
+    public static void hashSection(long salt, int minX, int minY, int minZ, int height, int[] out)
+    {
+        hashSection(salt, minX, minY, minZ, height, out, 0);
+    }
+
+    /**
+     * Computes {@link #hash(long, int, int, int)} for every position in a 16 x {@code height} x 16 region, writing them to {@code out} from its current position.
+     * @see #hashSection(long, int, int, int, int, int[])
+     *
+     * @param salt   the salt value
+     * @param minX   the minimum x-coordinate
+     * @param minY   the minimum y-coordinate
+     * @param minZ   the minimum z-coordinate
+     * @param height the number of y levels to hash
+     * @param out    the buffer to write to, with at least {@code 256 * height} remaining
+     */
+    public static void hashSection(long salt, int minX, int minY, int minZ, int height, IntBuffer out)
+    {
+        final int count = 256 * height;
+        if (out.remaining() < count)
+        {
+            throw new BufferOverflowException();
+        }
+        if (out.hasArray())
+        {
+            hashSection(salt, minX, minY, minZ, height, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + count);
+            return;
+        }
+        final int seed = (int) salt;
+        for (int y = minY; y < minY + height; y++)
+        {
+            for (int z = minZ; z < minZ + 16; z++)
+            {
+                final int row = seed ^ (y * PRIME_Y) ^ z;
+                for (int x = minX; x < minX + 16; x++)
+                {
+                    out.put((row ^ (x * PRIME_X)) * 0x27d4eb2d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes {@link #hash(long, int, int, int)} for an arbitrary set of positions, given as parallel coordinate arrays.
+     *
+     * @param salt  the salt value
+     * @param xs    the x-coordinates
+     * @param ys    the y-coordinates
+     * @param zs    the z-coordinates
+     * @param out   the array to write to, where {@code out[i]} is the hash of {@code (xs[i], ys[i], zs[i])}
+     * @param count the number of positions to hash
+     */
+    public static void hash(long salt, int[] xs, int[] ys, int[] zs, int[] out, int count)
+    {
+        Objects.checkFromIndexSize(0, count, xs.length);
+        Objects.checkFromIndexSize(0, count, ys.length);
+        Objects.checkFromIndexSize(0, count, zs.length);
+        Objects.checkFromIndexSize(0, count, out.length);
+
+        final int seed = (int) salt;
+        for (int i = 0; i < count; i++)
+        {
+            out[i] = (seed ^ (xs[i] * PRIME_X) ^ (ys[i] * PRIME_Y) ^ zs[i]) * 0x27d4eb2d;
+        }
+    }
+
+    private static void hashSection(long salt, int minX, int minY, int minZ, int height, int[] out, int offset)
+    {
+        Objects.checkFromIndexSize(offset, 256 * height, out.length);
+
+        final int seed = (int) salt;
+        int index = offset;
+        for (int y = minY; y < minY + height; y++)
+        {
+            for (int z = minZ; z < minZ + 16; z++)
+            {
+                final int row = seed ^ (y * PRIME_Y) ^ z;
+                for (int dx = 0; dx < 16; dx++)
+                {
+                    out[index + dx] = (row ^ ((minX + dx) * PRIME_X)) * 0x27d4eb2d;
+                }
+                index += 16;
+            }
+        }
+    }
+
     /*
      * Random Number Generation Methods.
      */
@@ -199,6 +303,81 @@ public class MathHelpers
         return random.nextInt(range) - random.nextInt(range);
     }
 
+    /**
+     * Selects {@code n} unique indices uniformly at random from {@code [0, bound)}, using <a href="https://dl.acm.org/doi/10.1145/30401.315746">Floyd's algorithm</a>.
+     * Unlike shuffling a list of candidates, this never copies or mutates the candidates, and uses exactly {@code n} random calls regardless of {@code bound}.
+     * Note that every set of {@code n} indices is equally likely, but the order in which they are written is not uniformly random.
+     *
+     * @param bound  the exclusive upper bound of the indices
+     * @param n      the number of indices to select
+     * @param random the random number generator
+     * @param out    the array to write the selected indices to, in {@code out[0, n)}
+     * @throws IllegalArgumentException if {@code n} is greater than {@code bound}, or {@code out} is too small
+     */
+    public static void uniqueRandomIndices(int bound, int n, RandomSource random, int[] out)
+    {
+        if (n < 0 || n > bound)
+        {
+            throw new IllegalArgumentException("Cannot select n=" + n + " unique indices from [0, " + bound + ")");
+        }
+        if (out.length < n)
+        {
+            throw new IllegalArgumentException("Cannot write n=" + n + " indices to an array of length " + out.length);
+        }
+        if (n <= 32)
+        {
+            // For small samples, a linear scan of the indices selected so far is faster than any set
+            for (int i = 0, j = bound - n; i < n; i++, j++)
+            {
+                final int t = random.nextInt(j + 1);
+                out[i] = contains(out, i, t) ? j : t;
+            }
+        }
+        else
+        {
+            final long[] selected = new long[(bound + 63) >>> 6];
+            for (int i = 0, j = bound - n; i < n; i++, j++)
+            {
+                int t = random.nextInt(j + 1);
+                if ((selected[t >>> 6] & (1L << t)) != 0)
+                {
+                    t = j;
+                }
+                selected[t >>> 6] |= 1L << t;
+                out[i] = t;
+            }
+        }
+    }
+
+    /**
+     * Selects {@code n} unique indices uniformly at random from {@code [0, bound)}.
+     * @see #uniqueRandomIndices(int, int, RandomSource, int[])
+     *
+     * @param bound  the exclusive upper bound of the indices
+     * @param n      the number of indices to select
+     * @param random the random number generator
+     * @return       a new array of the {@code n} selected indices
+     * @throws IllegalArgumentException if {@code n} is greater than {@code bound}
+     */
+    public static int[] uniqueRandomIndices(int bound, int n, RandomSource random)
+    {
+        final int[] out = new int[Math.max(n, 0)];
+        uniqueRandomIndices(bound, n, random, out);
+        return out;
+    }
+
+    private static boolean contains(int[] array, int length, int value)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            if (array[i] == value)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /*
      * Triangle methods.
      */
@@ -293,7 +472,8 @@ public class MathHelpers
     /**
      * Checks the existence of a <a href="https://en.wikipedia.org/wiki/Perfect_matching">perfect matching</a> of a <a href="https://en.wikipedia.org/wiki/Bipartite_graph">bipartite graph</a>.
      * The graph is interpreted as the matches between the set of inputs, and the set of tests.
-     * This algorithm computes the <a href="https://en.wikipedia.org/wiki/Edmonds_matrix">Edmonds Matrix</a> of the graph, which has the property that the determinant is identically zero iff the graph does not admit a perfect matching.
+     * This searches for augmenting paths over a bitset adjacency matrix, evaluating each test against an input only when that edge is explored.
+     * @see PerfectMatcher
      *
      * @param inputs The set of inputs.
      * @param tests  The set of tests.
@@ -301,81 +481,6 @@ public class MathHelpers
      */
     public static <T> boolean perfectMatchExists(List<T> inputs, List<? extends Predicate<T>> tests)
     {
-        if (inputs.size() != tests.size())
-        {
-            return false;
-        }
-        final int size = inputs.size();
-        final boolean[][] matrices  = new boolean[size][];
-        for (int i = 0; i < size; i++)
-        {
-            matrices[i] = new boolean[(size + i) * (size + 1)];
-        }
-        final boolean[] matrix = matrices[size - 1];
-        for (int i = 0; i < size; i++)
-        {
-            for (int j = 0; j < size; j++)
-            {
-                matrix[i + size * j] = tests.get(i).test(inputs.get(j));
-            }
-        }
-
-        return perfectMatchDet(matrices, size);
-    }
-
-    /**
-     * Computes a symbolic determinant for a perfect matching in a bipartite graph.
-     * Used by {@link #perfectMatchExists(List, List)}
-     *
-     * @param matrices The matrices representing the bipartite graph.
-     * @param size     The size of the bipartite graph.
-     * @return         {@code true} if a perfect matching exists in the bipartite graph, {@code false} otherwise.
-     */
-    private static boolean perfectMatchDet(boolean[][] matrices, int size)
-    {
-        // matrix true = nonzero = matches
-        final boolean[] matrix = matrices[size - 1];
-        return switch (size)
-        {
-            case 1 -> matrix[0];
-            case 2 -> (matrix[0] && matrix[3]) || (matrix[1] && matrix[2]);
-            default ->
-            {
-                for (int c = 0; c < size; c++)
-                {
-                    if (matrix[c])
-                    {
-                        perfectMatchSub(matrices, size, c);
-                        if (perfectMatchDet(matrices, size - 1))
-                        {
-                            yield true;
-                        }
-                    }
-                }
-                yield false;
-            }
-        };
-    }
-
-    /**
-     * Computes the symbolic minor of a matrix by removing an arbitrary column.
-     * Used by {@link #perfectMatchExists(List, List)}
-     *
-     * @param matrices The matrices representing the bipartite graph.
-     * @param size     The size of the bipartite graph.
-     * @param dc       The index of the column to be removed.
-     */
-    private static void perfectMatchSub(boolean[][] matrices, int size, int dc)
-    {
-        final int subSize = size - 1;
-        final boolean[] matrix = matrices[subSize], sub = matrices[subSize - 1];
-        for (int c = 0; c < subSize; c++)
-        {
-            final int c0 = c + (c >= dc ? 1 : 0);
-            for (int r = 0; r < subSize; r++)
-            {
-                sub[c + subSize * r] = matrix[c0 + size * (r + 1)];
-            }
-        }
+        return PerfectMatcher.local().match(inputs, tests);
     }
 }
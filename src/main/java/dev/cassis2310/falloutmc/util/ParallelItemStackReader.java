@@ -0,0 +1,77 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes a list of item stack tags on the common fork join pool, so loading many large inventories (i.e. storage containers in a freshly loaded chunk)
+ * does not parse every stack on the server thread. The list is split into ranges, each decoded into its own part of a pre-sized array, so no
+ * synchronization is needed between workers. The finished array is then handed back on the given executor, normally the server thread.
+ * <p>
+ * The tags must not be modified while they are being decoded. Lists shorter than {@link #THRESHOLD} are decoded immediately on the calling thread.
+ */
+public final class ParallelItemStackReader
+{
+    /**
+     * Below this many stacks, a range is decoded by a single task, as splitting it further costs more than it saves.
+     */
+    public static final int THRESHOLD = 64;
+
+    /**
+     * Decodes stacks from {@code list}, in parallel.
+     *
+     * @param provider     The provider for resolving data during deserialization.
+     * @param list         The list tag, in the format written by {@link Helpers#writeItemStacksToNbt}.
+     * @param mainExecutor The executor on which the returned future is completed, i.e. the server.
+     * @return             A future of the decoded stacks, one per element of {@code list}. It is completed on {@code mainExecutor}, or already complete if the list was short.
+     */
+    public static CompletableFuture<ItemStack[]> read(HolderLookup.Provider provider, ListTag list, Executor mainExecutor)
+    {
+        final ItemStack[] stacks = new ItemStack[list.size()];
+        if (stacks.length < THRESHOLD)
+        {
+            new DecodeTask(provider, list, stacks, 0, stacks.length).compute();
+            return CompletableFuture.completedFuture(stacks);
+        }
+        return CompletableFuture.runAsync(() -> ForkJoinPool.commonPool().invoke(new DecodeTask(provider, list, stacks, 0, stacks.length)), ForkJoinPool.commonPool())
+            .thenApplyAsync(ignored -> stacks, mainExecutor);
+    }
+
+    private static final class DecodeTask extends RecursiveAction
+    {
+        private final HolderLookup.Provider provider;
+        private final ListTag list;
+        private final ItemStack[] stacks;
+        private final int start, end;
+
+        DecodeTask(HolderLookup.Provider provider, ListTag list, ItemStack[] stacks, int start, int end)
+        {
+            this.provider = provider;
+            this.list = list;
+            this.stacks = stacks;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (end - start <= THRESHOLD)
+            {
+                for (int i = start; i < end; i++)
+                {
+                    stacks[i] = ItemStack.parseOptional(provider, list.getCompound(i));
+                }
+                return;
+            }
+            final int middle = (start + end) >>> 1;
+            invokeAll(new DecodeTask(provider, list, stacks, start, middle), new DecodeTask(provider, list, stacks, middle, end));
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package dev.cassis2310.falloutmc.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Checks the existence of a <a href="https://en.wikipedia.org/wiki/Perfect_matching">perfect matching</a> of a <a href="https://en.wikipedia.org/wiki/Bipartite_graph">bipartite graph</a>,
+ * between a list of inputs and a list of tests, where an edge exists iff the test accepts the input.
+ * <p>
+ * The adjacency matrix is stored as one {@code long} bitset per test (row), and each predicate is only evaluated the first time the search explores that edge,
+ * so a matching found early never tests the remaining pairs.
+ * <ul>
+ *     <li>For up to 64 inputs, every row fits in a single {@code long}, and the search is a depth-first augmenting path search (Kuhn's algorithm) using bitmask operations to select candidates.</li>
+ *     <li>For larger inputs, rows span multiple words, and the search uses the <a href="https://en.wikipedia.org/wiki/Hopcroft%E2%80%93Karp_algorithm">Hopcroft-Karp</a> algorithm, which runs in O(E sqrt(V)).</li>
+ * </ul>
+ * A matcher keeps its scratch buffers between calls, and only grows them, so repeated matching does not allocate. Instances are not thread safe - either own
+ * one per caller (i.e. per block entity), or use {@link #local()}.
+ */
+public final class PerfectMatcher
+{
+    private static final int SMALL_SIZE = Long.SIZE;
+    private static final int UNMATCHED = -1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<PerfectMatcher> LOCAL = ThreadLocal.withInitial(PerfectMatcher::new);
+
+    /**
+     * @return A matcher owned by the current thread. If that matcher is already in use (i.e. a test itself requires a perfect matching), a new matcher is returned instead.
+     */
+    public static PerfectMatcher local()
+    {
+        final PerfectMatcher matcher = LOCAL.get();
+        return matcher.inUse ? new PerfectMatcher() : matcher;
+    }
+
+    private boolean inUse;
+    private int size;
+    private int words;
+
+    private long[] known = new long[0]; // Bit set iff the edge (test, input) has been evaluated. Indexed [test * words + input / 64]
+    private long[] edges = new long[0]; // Bit set iff the test accepts the input, only meaningful where known is set.
+    private int[] inputMatches = new int[0]; // Input -> the test it is matched to, or UNMATCHED
+    private int[] testMatches = new int[0]; // Test -> the input it is matched to, or UNMATCHED
+
+    // Small search only
+    private long allInputs;
+    private long freeInputs;
+    private long visitedInputs;
+
+    // Large search only
+    private int[] distances = new int[0];
+    private int[] queue = new int[0];
+    private int freeDistance;
+
+    private List<?> inputs;
+    private List<?> tests;
+    private BiPredicate<Object, Object> tester;
+
+    /**
+     * Checks if a perfect matching exists between {@code inputs} and {@code tests}.
+     *
+     * @param inputs The set of inputs.
+     * @param tests  The set of tests.
+     * @return       {@code true} if every test can be assigned a unique input it accepts, and every input is used, {@code false} otherwise.
+     */
+    public <T> boolean match(List<T> inputs, List<? extends Predicate<T>> tests)
+    {
+        return match(inputs, tests, null);
+    }
+
+    /**
+     * Checks if a perfect matching exists between {@code inputs} and {@code tests}, and if so, writes the matching into {@code assignment}.
+     * This allows a caller to both test, and then consume the matched inputs, without running the search twice.
+     *
+     * @param inputs     The set of inputs.
+     * @param tests      The set of tests.
+     * @param assignment An array of at least {@code tests.size()} length. If a matching exists, {@code assignment[i]} is set to the index of the input matched to test {@code i}. Otherwise, it is left unmodified.
+     * @return           {@code true} if every test can be assigned a unique input it accepts, and every input is used, {@code false} otherwise.
+     * @throws IllegalArgumentException if {@code assignment} is too short.
+     */
+    public <T> boolean match(List<T> inputs, List<? extends Predicate<T>> tests, @Nullable int[] assignment)
+    {
+        return match(inputs, tests, Predicate::test, assignment);
+    }
+
+    /**
+     * Checks if a perfect matching exists between {@code inputs} and {@code tests}, where an edge is determined by {@code tester} rather than the tests themselves.
+     * This allows callers to interpose on edge evaluation, for instance to cache results.
+     *
+     * @param inputs     The set of inputs.
+     * @param tests      The set of tests.
+     * @param tester     Returns {@code true} if the given test accepts the given input.
+     * @param assignment An array of at least {@code tests.size()} length, or {@code null}. See {@link #match(List, List, int[])}
+     * @return           {@code true} if every test can be assigned a unique input it accepts, and every input is used, {@code false} otherwise.
+     * @throws IllegalArgumentException if {@code assignment} is too short.
+     */
+    public <T, P> boolean match(List<T> inputs, List<? extends P> tests, BiPredicate<? super P, ? super T> tester, @Nullable int[] assignment)
+    {
+        if (assignment != null && assignment.length < tests.size())
+        {
+            throw new IllegalArgumentException("Assignment of length " + assignment.length + " cannot hold a matching of size " + tests.size());
+        }
+        if (inputs.size() != tests.size())
+        {
+            return false;
+        }
+        if (inputs.isEmpty())
+        {
+            return true;
+        }
+        if (inUse)
+        {
+            throw new IllegalStateException("PerfectMatcher is not reentrant, use a different instance for nested matching");
+        }
+
+        inUse = true;
+        try
+        {
+            setup(inputs, tests, tester);
+            final boolean matched = size <= SMALL_SIZE ? matchSmall() : matchLarge();
+            if (matched && assignment != null)
+            {
+                System.arraycopy(testMatches, 0, assignment, 0, size);
+            }
+            return matched;
+        }
+        finally
+        {
+            // Don't retain references to the caller's objects
+            this.inputs = null;
+            this.tests = null;
+            this.tester = null;
+            inUse = false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, P> void setup(List<T> inputs, List<? extends P> tests, BiPredicate<? super P, ? super T> tester)
+    {
+        this.inputs = inputs;
+        this.tests = tests;
+        this.tester = (BiPredicate<Object, Object>) tester;
+        this.size = inputs.size();
+        this.words = (size + Long.SIZE - 1) >>> 6;
+
+        // Buffers are only ever grown, and the used prefix is cleared
+        final int cells = size * words;
+        if (known.length < cells)
+        {
+            known = new long[cells];
+            edges = new long[cells];
+        }
+        else
+        {
+            Arrays.fill(known, 0, cells, 0L);
+            Arrays.fill(edges, 0, cells, 0L);
+        }
+        if (inputMatches.length < size)
+        {
+            inputMatches = new int[size];
+            testMatches = new int[size];
+        }
+        Arrays.fill(inputMatches, 0, size, UNMATCHED);
+        Arrays.fill(testMatches, 0, size, UNMATCHED);
+
+        if (size > SMALL_SIZE && distances.length < size)
+        {
+            distances = new int[size];
+            queue = new int[size];
+        }
+    }
+
+    /**
+     * @return {@code true} if {@code test} accepts {@code input}, evaluating the predicate only if this edge has not been seen before.
+     */
+    private boolean edge(int test, int input)
+    {
+        final int index = test * words + (input >>> 6);
+        final long bit = 1L << input; // Shifts are mod 64
+        if ((known[index] & bit) == 0)
+        {
+            known[index] |= bit;
+            if (tester.test(tests.get(test), inputs.get(input)))
+            {
+                edges[index] |= bit;
+            }
+        }
+        return (edges[index] & bit) != 0;
+    }
+
+    private void assign(int test, int input)
+    {
+        testMatches[test] = input;
+        inputMatches[input] = test;
+    }
+
+    private boolean matchSmall()
+    {
+        allInputs = size == SMALL_SIZE ? -1L : (1L << size) - 1;
+        freeInputs = allInputs;
+        for (int test = 0; test < size; test++)
+        {
+            visitedInputs = 0;
+            if (!augmentSmall(test))
+            {
+                // If an augmenting path cannot be found from this test now, one will never be found, so this test can never be matched.
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches for an augmenting path starting at {@code test}, and if found, flips the matching along it.
+     */
+    private boolean augmentSmall(int test)
+    {
+        // Candidates exclude edges that are already known to not exist
+        final long possible = edges[test] | ~known[test];
+
+        // Unmatched inputs first, as they complete the augmenting path immediately
+        long candidates = freeInputs & possible;
+        while (candidates != 0)
+        {
+            final long bit = candidates & -candidates;
+            final int input = Long.numberOfTrailingZeros(bit);
+            candidates ^= bit;
+            if (edge(test, input))
+            {
+                assign(test, input);
+                freeInputs &= ~bit;
+                return true;
+            }
+        }
+
+        // Then inputs which are already matched, where the matched test needs to be moved to a different input
+        candidates = allInputs & ~freeInputs & ~visitedInputs & possible;
+        while (candidates != 0)
+        {
+            final long bit = candidates & -candidates;
+            final int input = Long.numberOfTrailingZeros(bit);
+            candidates ^= bit;
+            if (edge(test, input))
+            {
+                visitedInputs |= bit;
+                if (augmentSmall(inputMatches[input]))
+                {
+                    assign(test, input);
+                    return true;
+                }
+                candidates &= ~visitedInputs;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchLarge()
+    {
+        int matched = 0;
+        while (searchLayers())
+        {
+            for (int test = 0; test < size; test++)
+            {
+                if (testMatches[test] == UNMATCHED && augmentLarge(test))
+                {
+                    matched++;
+                }
+            }
+        }
+        return matched == size;
+    }
+
+    /**
+     * Breadth first search from all unmatched tests, assigning each test a distance, alternating between unmatched and matched edges.
+     * Stops at the first layer which reaches an unmatched input.
+     *
+     * @return {@code true} if any augmenting path exists.
+     */
+    private boolean searchLayers()
+    {
+        int head = 0, tail = 0;
+        for (int test = 0; test < size; test++)
+        {
+            if (testMatches[test] == UNMATCHED)
+            {
+                distances[test] = 0;
+                queue[tail++] = test;
+            }
+            else
+            {
+                distances[test] = INFINITY;
+            }
+        }
+
+        freeDistance = INFINITY;
+        while (head < tail)
+        {
+            final int test = queue[head++];
+            if (distances[test] >= freeDistance)
+            {
+                break;
+            }
+            evaluateRow(test);
+            final int base = test * words;
+            for (int word = 0; word < words; word++)
+            {
+                long candidates = edges[base + word];
+                while (candidates != 0)
+                {
+                    final long bit = candidates & -candidates;
+                    final int input = (word << 6) | Long.numberOfTrailingZeros(bit);
+                    candidates ^= bit;
+
+                    final int next = inputMatches[input];
+                    if (next == UNMATCHED)
+                    {
+                        freeDistance = Math.min(freeDistance, distances[test]);
+                    }
+                    else if (distances[next] == INFINITY)
+                    {
+                        distances[next] = distances[test] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return freeDistance != INFINITY;
+    }
+
+    /**
+     * Depth first search along the layers computed by {@link #searchLayers()}, flipping the matching along the path if found.
+     */
+    private boolean augmentLarge(int test)
+    {
+        if (distances[test] > freeDistance)
+        {
+            return false;
+        }
+        final int base = test * words;
+        for (int word = 0; word < words; word++)
+        {
+            // Rows at or below the free distance were fully evaluated by the layer search
+            long candidates = edges[base + word];
+            while (candidates != 0)
+            {
+                final long bit = candidates & -candidates;
+                final int input = (word << 6) | Long.numberOfTrailingZeros(bit);
+                candidates ^= bit;
+
+                final int next = inputMatches[input];
+                if (next == UNMATCHED ? distances[test] == freeDistance : distances[next] == distances[test] + 1 && augmentLarge(next))
+                {
+                    assign(test, input);
+                    return true;
+                }
+            }
+        }
+        distances[test] = INFINITY;
+        return false;
+    }
+
+    /**
+     * Evaluates all edges of a row which have not been evaluated yet.
+     */
+    private void evaluateRow(int test)
+    {
+        final int base = test * words;
+        for (int word = 0; word < words; word++)
+        {
+            final long valid = word == words - 1 && (size & 63) != 0 ? (1L << size) - 1 : -1L;
+            long unknown = ~known[base + word] & valid;
+            while (unknown != 0)
+            {
+                final long bit = unknown & -unknown;
+                unknown ^= bit;
+                edge(test, (word << 6) | Long.numberOfTrailingZeros(bit));
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.util.RandomSource;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An array backed snapshot of a collection of values, which picks a random value in constant time. Values are picked either uniformly,
+ * or weighted, using <a href="https://www.keithschwarz.com/darts-dice-coins/">Vose's alias method</a>, which costs one random int and one random double per pick.
+ * <p>
+ * A table is bound to its source (i.e. a map), and builds its snapshot lazily on the first pick. If the source is modified, {@link #invalidate()} must be called,
+ * and the snapshot will be rebuilt on the next pick. Picking is thread safe, as snapshots are immutable once published, and a snapshot built
+ * concurrently with an invalidation is never kept, see {@link LazySnapshot}.
+ *
+ * @param <V> The type of the values.
+ */
+public final class RandomTable<V>
+{
+    /**
+     * Creates a table which picks a value from {@code map} uniformly.
+     *
+     * @param map The source map.
+     * @return    A new table.
+     */
+    public static <V> RandomTable<V> uniform(Map<?, ? extends V> map)
+    {
+        return new RandomTable<>(map::values, null);
+    }
+
+    /**
+     * Creates a table which picks a value from {@code values} uniformly.
+     *
+     * @param values The source values.
+     * @return       A new table.
+     */
+    public static <V> RandomTable<V> uniform(Collection<? extends V> values)
+    {
+        return new RandomTable<>(() -> values, null);
+    }
+
+    /**
+     * Creates a table which picks a value from {@code map}, with a probability proportional to its weight.
+     *
+     * @param map    The source map.
+     * @param weight A function returning the weight of each value. Weights must be non-negative, and not all zero.
+     * @return       A new table.
+     */
+    public static <V> RandomTable<V> weighted(Map<?, ? extends V> map, ToDoubleFunction<? super V> weight)
+    {
+        return new RandomTable<>(map::values, weight);
+    }
+
+    /**
+     * Creates a table which picks a value from {@code values}, with a probability proportional to its weight.
+     *
+     * @param values The source values.
+     * @param weight A function returning the weight of each value. Weights must be non-negative, and not all zero.
+     * @return       A new table.
+     */
+    public static <V> RandomTable<V> weighted(Collection<? extends V> values, ToDoubleFunction<? super V> weight)
+    {
+        return new RandomTable<>(() -> values, weight);
+    }
+
+    private final Supplier<? extends Collection<? extends V>> source;
+    private final @Nullable ToDoubleFunction<? super V> weight;
+    private final LazySnapshot<Snapshot> snapshot = new LazySnapshot<>(this::build);
+
+    private RandomTable(Supplier<? extends Collection<? extends V>> source, @Nullable ToDoubleFunction<? super V> weight)
+    {
+        this.source = source;
+        this.weight = weight;
+    }
+
+    /**
+     * Picks a random value.
+     *
+     * @param random The random source to use.
+     * @return       A random value.
+     * @throws IllegalStateException if the source is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public V pick(RandomSource random)
+    {
+        final Snapshot snapshot = this.snapshot.get();
+        final int size = snapshot.values.length;
+        if (size == 0)
+        {
+            throw new IllegalStateException("Cannot pick a value from an empty table");
+        }
+        final int index = random.nextInt(size);
+        if (snapshot.probabilities == null || random.nextDouble() < snapshot.probabilities[index])
+        {
+            return (V) snapshot.values[index];
+        }
+        return (V) snapshot.values[snapshot.aliases[index]];
+    }
+
+    /**
+     * @return The number of values in the table.
+     */
+    public int size()
+    {
+        return snapshot.get().values.length;
+    }
+
+    /**
+     * @return {@code true} if the table has no values to pick from.
+     */
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Discards the current snapshot. Must be called when the source is modified.
+     */
+    public void invalidate()
+    {
+        snapshot.invalidate();
+    }
+
+    private Snapshot build()
+    {
+        final Object[] values = source.get().toArray();
+        if (weight == null || values.length == 0)
+        {
+            return new Snapshot(values, null, null);
+        }
+
+        final int size = values.length;
+        final double[] scaled = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++)
+        {
+            @SuppressWarnings("unchecked") final double value = weight.applyAsDouble((V) values[i]);
+            if (!(value >= 0 && Double.isFinite(value)))
+            {
+                throw new IllegalArgumentException("Weight must be non-negative and finite, got " + value + " for " + values[i]);
+            }
+            scaled[i] = value;
+            total += value;
+        }
+        if (total <= 0)
+        {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        // Vose's alias method: each index is split between itself and one alias, such that every index has an equal 1 / size probability overall
+        final double[] probabilities = new double[size];
+        final int[] aliases = new int[size];
+        final int[] small = new int[size], large = new int[size];
+        int smallSize = 0, largeSize = 0;
+        for (int i = 0; i < size; i++)
+        {
+            scaled[i] *= size / total;
+            if (scaled[i] < 1)
+            {
+                small[smallSize++] = i;
+            }
+            else
+            {
+                large[largeSize++] = i;
+            }
+        }
+        while (smallSize > 0 && largeSize > 0)
+        {
+            final int less = small[--smallSize];
+            final int more = large[--largeSize];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1)
+            {
+                small[smallSize++] = more;
+            }
+            else
+            {
+                large[largeSize++] = more;
+            }
+        }
+        // Anything left over is within floating point error of 1
+        while (largeSize > 0)
+        {
+            probabilities[large[--largeSize]] = 1;
+        }
+        while (smallSize > 0)
+        {
+            probabilities[small[--smallSize]] = 1;
+        }
+        return new Snapshot(values, probabilities, aliases);
+    }
+
+    private record Snapshot(Object[] values, @Nullable double[] probabilities, @Nullable int[] aliases) {}
+}
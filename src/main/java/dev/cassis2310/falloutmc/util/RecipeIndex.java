@@ -0,0 +1,219 @@
+package dev.cassis2310.falloutmc.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.Ingredient;
+import net.minecraft.world.item.crafting.Recipe;
+import net.minecraft.world.item.crafting.RecipeHolder;
+import net.minecraft.world.item.crafting.RecipeInput;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An index of the recipes of a single {@link net.minecraft.world.item.crafting.RecipeType}, keyed by the items accepted by the first non-empty ingredient
+ * of each recipe. Items are indexed by their registry raw id, so a lookup is an array access rather than a scan of every recipe.
+ * <p>
+ * Any recipe which matches an inventory must have its first ingredient matched by one of the stacks in that inventory, so the candidates for an
+ * inventory are a superset of the recipes which match it. Recipes with no ingredients, whose first ingredient does not list any items
+ * (i.e. special recipes), or whose first ingredient is not {@link Ingredient#isSimple() simple} (i.e. custom ingredients, whose listed items may
+ * only be for display), are always candidates.
+ * <p>
+ * Indexes are obtained via {@link RecipeManagers#getIndex}, and are rebuilt lazily when recipes or tags are reloaded. They are only ever built from
+ * a fully loaded recipe manager, see {@link RecipeManagers}.
+ *
+ * @param <I> The type of the recipe input.
+ * @param <R> The type of the recipes.
+ */
+public final class RecipeIndex<I extends RecipeInput, R extends Recipe<I>>
+{
+    private static final int[] NO_RECIPES = new int[0];
+    private static final RecipeIndex<?, ?> EMPTY = new RecipeIndex<>(List.of());
+
+    @SuppressWarnings("unchecked")
+    public static <I extends RecipeInput, R extends Recipe<I>> RecipeIndex<I, R> empty()
+    {
+        return (RecipeIndex<I, R>) EMPTY;
+    }
+
+    private final List<RecipeHolder<R>> recipes;
+    private final int[][] byItem; // Indexed by item raw id, each an ascending array of indexes into recipes
+    private final int[] wildcards;
+
+    RecipeIndex(List<RecipeHolder<R>> recipes)
+    {
+        this.recipes = recipes;
+
+        final IntArrayList[] buckets = new IntArrayList[recipes.isEmpty() ? 0 : BuiltInRegistries.ITEM.size()];
+        final IntArrayList wildcards = new IntArrayList();
+        for (int index = 0; index < recipes.size(); index++)
+        {
+            final Ingredient ingredient = firstIngredient(recipes.get(index).value());
+            // Custom ingredients may only list display items from getItems(), so they cannot be indexed by item
+            final ItemStack[] items = ingredient != null && ingredient.isSimple() ? ingredient.getItems() : null;
+            if (items == null || items.length == 0)
+            {
+                wildcards.add(index);
+                continue;
+            }
+            for (ItemStack stack : items)
+            {
+                final int id = BuiltInRegistries.ITEM.getId(stack.getItem());
+                if (id < 0 || id >= buckets.length)
+                {
+                    continue;
+                }
+                IntArrayList bucket = buckets[id];
+                if (bucket == null)
+                {
+                    bucket = buckets[id] = new IntArrayList(2);
+                }
+                // Ingredients may list the same item more than once, i.e. with different components
+                if (bucket.isEmpty() || bucket.getInt(bucket.size() - 1) != index)
+                {
+                    bucket.add(index);
+                }
+            }
+        }
+
+        this.byItem = new int[buckets.length][];
+        for (int id = 0; id < buckets.length; id++)
+        {
+            byItem[id] = buckets[id] != null ? buckets[id].toIntArray() : NO_RECIPES;
+        }
+        this.wildcards = wildcards.toIntArray();
+    }
+
+    /**
+     * @param stack A stack which would be the first ingredient of a recipe.
+     * @return      The recipes which may accept {@code stack} as their first ingredient, in recipe manager order.
+     */
+    public List<RecipeHolder<R>> candidates(ItemStack stack)
+    {
+        final int[] bucket = stack.isEmpty() ? NO_RECIPES : bucket(stack.getItem());
+        final List<RecipeHolder<R>> candidates = new ArrayList<>(bucket.length + wildcards.length);
+
+        // Merge the two ascending arrays, so candidates keep the order of the recipe manager
+        int i = 0, j = 0;
+        while (i < bucket.length || j < wildcards.length)
+        {
+            if (j == wildcards.length || (i < bucket.length && bucket[i] < wildcards[j]))
+            {
+                candidates.add(recipes.get(bucket[i++]));
+            }
+            else
+            {
+                candidates.add(recipes.get(wildcards[j++]));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @param stacks The contents of an inventory.
+     * @return       The recipes which may match an inventory containing {@code stacks}, without duplicates, in recipe manager order.
+     */
+    public List<RecipeHolder<R>> candidates(Iterable<ItemStack> stacks)
+    {
+        if (recipes.isEmpty())
+        {
+            return List.of();
+        }
+
+        final long[] found = new long[(recipes.size() + 63) >>> 6];
+        int count = 0;
+        for (int index : wildcards)
+        {
+            found[index >>> 6] |= 1L << index;
+            count++;
+        }
+        for (ItemStack stack : stacks)
+        {
+            if (stack.isEmpty())
+            {
+                continue;
+            }
+            for (int index : bucket(stack.getItem()))
+            {
+                final long bit = 1L << index;
+                if ((found[index >>> 6] & bit) == 0)
+                {
+                    found[index >>> 6] |= bit;
+                    count++;
+                }
+            }
+        }
+
+        final List<RecipeHolder<R>> candidates = new ArrayList<>(count);
+        for (int word = 0; word < found.length; word++)
+        {
+            long bits = found[word];
+            while (bits != 0)
+            {
+                candidates.add(recipes.get((word << 6) + Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @param input The recipe input.
+     * @return      The recipes which may match {@code input}, without duplicates, in recipe manager order.
+     */
+    public List<RecipeHolder<R>> candidates(RecipeInput input)
+    {
+        return candidates(Helpers.iterate(input));
+    }
+
+    /**
+     * Finds the first recipe which matches the given input, only testing the candidates for that input.
+     *
+     * @param input The recipe input.
+     * @param level The level.
+     * @return      The first matching recipe, in recipe manager order, if any.
+     */
+    public Optional<RecipeHolder<R>> getRecipeFor(I input, Level level)
+    {
+        for (RecipeHolder<R> holder : candidates(input))
+        {
+            if (holder.value().matches(input, level))
+            {
+                return Optional.of(holder);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return All recipes in this index, in recipe manager order.
+     */
+    public List<RecipeHolder<R>> recipes()
+    {
+        return recipes;
+    }
+
+    private int[] bucket(Item item)
+    {
+        final int id = BuiltInRegistries.ITEM.getId(item);
+        return id >= 0 && id < byItem.length ? byItem[id] : NO_RECIPES;
+    }
+
+    @Nullable
+    private static Ingredient firstIngredient(Recipe<?> recipe)
+    {
+        for (Ingredient ingredient : recipe.getIngredients())
+        {
+            if (!ingredient.isEmpty())
+            {
+                return ingredient;
+            }
+        }
+        return null;
+    }
+}
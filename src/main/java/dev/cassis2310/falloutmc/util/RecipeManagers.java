@@ -0,0 +1,170 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.world.item.crafting.Recipe;
+import net.minecraft.world.item.crafting.RecipeHolder;
+import net.minecraft.world.item.crafting.RecipeInput;
+import net.minecraft.world.item.crafting.RecipeManager;
+import net.minecraft.world.item.crafting.RecipeType;
+import net.neoforged.fml.LogicalSide;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the current {@link RecipeManager} of each logical side, so it can be accessed from anywhere (including worker threads) without probing the
+ * server, the client, and catching exceptions on every call.
+ * <ul>
+ *     <li>The server manager is published once the server has started, and again after each successful resource reload, so a manager which is
+ *     still being filled is never published. It is cleared when the server stops.</li>
+ *     <li>The client manager is published when the client receives recipes from the server.</li>
+ * </ul>
+ * Each published manager has a lazily built table of recipes, and a {@link RecipeIndex}, per {@link RecipeType}, which are discarded when tags are reloaded. Publication is through
+ * a volatile field, so readers on any thread see either the previous or the current manager, and its tables, in full.
+ */
+public final class RecipeManagers
+{
+    private static volatile @Nullable Entry server = null;
+    private static volatile @Nullable Entry client = null;
+
+    /**
+     * Publishes the recipe manager for a logical side, replacing any previous one.
+     *
+     * @param side    The logical side.
+     * @param manager The recipe manager.
+     */
+    public static void publish(LogicalSide side, RecipeManager manager)
+    {
+        set(side, new Entry(manager));
+    }
+
+    /**
+     * Removes the recipe manager for a logical side, i.e. when the server stops, or the client disconnects.
+     *
+     * @param side The logical side.
+     */
+    public static void clear(LogicalSide side)
+    {
+        set(side, null);
+    }
+
+    /**
+     * Discards the recipe tables for a logical side, which will be rebuilt lazily. Called when tags, and hence possibly recipe contents, are reloaded.
+     *
+     * @param side The logical side.
+     */
+    public static void invalidate(LogicalSide side)
+    {
+        final Entry entry = get(side);
+        if (entry != null)
+        {
+            set(side, new Entry(entry.manager));
+        }
+    }
+
+    /**
+     * @param side The logical side.
+     * @return     The recipe manager for {@code side}, or {@code null} if none is present.
+     */
+    @Nullable
+    public static RecipeManager getManager(LogicalSide side)
+    {
+        final Entry entry = get(side);
+        return entry != null ? entry.manager : null;
+    }
+
+    /**
+     * @return The recipe manager of the server if present, otherwise of the client, otherwise {@code null}.
+     */
+    @Nullable
+    public static RecipeManager getManager()
+    {
+        final Entry entry = get();
+        return entry != null ? entry.manager : null;
+    }
+
+    /**
+     * Returns all recipes of the given type, from the recipe manager of the server if present, otherwise of the client.
+     *
+     * @param type The recipe type.
+     * @return     An immutable list of all recipes of that type, or an empty list if no recipe manager is present.
+     */
+    public static <I extends RecipeInput, R extends Recipe<I>> List<RecipeHolder<R>> getRecipes(RecipeType<R> type)
+    {
+        final Entry entry = get();
+        return entry != null ? entry.recipes(type) : List.of();
+    }
+
+    /**
+     * Returns an index of all recipes of the given type, from the recipe manager of the server if present, otherwise of the client.
+     *
+     * @param type The recipe type.
+     * @return     An index of all recipes of that type, or an empty index if no recipe manager is present.
+     */
+    public static <I extends RecipeInput, R extends Recipe<I>> RecipeIndex<I, R> getIndex(RecipeType<R> type)
+    {
+        final Entry entry = get();
+        return entry != null ? entry.index(type) : RecipeIndex.empty();
+    }
+
+    @Nullable
+    static Entry get()
+    {
+        final Entry server = RecipeManagers.server;
+        return server != null ? server : client;
+    }
+
+    @Nullable
+    private static Entry get(LogicalSide side)
+    {
+        return side == LogicalSide.SERVER ? server : client;
+    }
+
+    private static void set(LogicalSide side, @Nullable Entry entry)
+    {
+        if (side == LogicalSide.SERVER)
+        {
+            server = entry;
+        }
+        else
+        {
+            client = entry;
+        }
+    }
+
+    /**
+     * A published recipe manager, along with the tables built from it.
+     */
+    static final class Entry
+    {
+        final RecipeManager manager;
+        private final Map<RecipeType<?>, List<? extends RecipeHolder<?>>> recipesByType = new ConcurrentHashMap<>();
+        private final Map<RecipeType<?>, RecipeIndex<?, ?>> indexByType = new ConcurrentHashMap<>();
+
+        Entry(RecipeManager manager)
+        {
+            this.manager = manager;
+        }
+
+        @SuppressWarnings("unchecked")
+        <I extends RecipeInput, R extends Recipe<I>> List<RecipeHolder<R>> recipes(RecipeType<R> type)
+        {
+            return (List<RecipeHolder<R>>) recipesByType.computeIfAbsent(type, key -> List.copyOf(manager.getAllRecipesFor(type)));
+        }
+
+        @SuppressWarnings("unchecked")
+        <I extends RecipeInput, R extends Recipe<I>> RecipeIndex<I, R> index(RecipeType<R> type)
+        {
+            final RecipeIndex<?, ?> index = indexByType.get(type);
+            if (index != null)
+            {
+                return (RecipeIndex<I, R>) index;
+            }
+            // Built outside computeIfAbsent, as building reads the recipe table which also lives in a concurrent map
+            final RecipeIndex<I, R> built = new RecipeIndex<>(recipes(type));
+            final RecipeIndex<?, ?> previous = indexByType.putIfAbsent(type, built);
+            return previous != null ? (RecipeIndex<I, R>) previous : built;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dev.cassis2310.falloutmc.util;
+
+import net.minecraft.world.item.ItemStack;
+
+/**
+ * A callback for each slot of an inventory, which receives the slot index as a primitive, so iterating an inventory allocates nothing.
+ * @see Helpers#forEachSlot(net.neoforged.neoforge.items.IItemHandler, SlotConsumer)
+ */
+@FunctionalInterface
+public interface SlotConsumer
+{
+    /**
+     * @param slot  The slot index.
+     * @param stack The stack in the slot. This must not be modified.
+     */
+    void accept(int slot, ItemStack stack);
+}